@@ -0,0 +1,230 @@
+package com.bh.restaurant.benchmarks;
+
+import com.bh.restaurant.domain.RestaurantCreateUpdateRequest;
+import com.bh.restaurant.domain.RestaurantSearchResult;
+import com.bh.restaurant.domain.entities.Address;
+import com.bh.restaurant.domain.entities.Photo;
+import com.bh.restaurant.domain.entities.Restaurant;
+import com.bh.restaurant.domain.entities.Review;
+import com.bh.restaurant.domain.entities.User;
+import com.bh.restaurant.repositories.RestaurantRepository;
+import com.bh.restaurant.repositories.ReviewRepository;
+import com.bh.restaurant.services.RestaurantService;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.elasticsearch.core.geo.GeoPoint;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+// Test data and in-memory stand-ins for the Elasticsearch repositories. The stubs only implement
+// the methods the benchmarked code calls; in production Elasticsearch does the sorting and paging
+// that the review stub does here.
+final class BenchmarkFixtures {
+
+    static final String AUTHOR_ID = "author-1";
+
+    private BenchmarkFixtures() {
+    }
+
+    // A restaurant whose rating aggregates cover reviewCount reviews
+    static Restaurant restaurant(String id, int reviewCount, Random random) {
+        Map<String, Integer> histogram = new HashMap<>();
+        long ratingSum = 0;
+        for (int i = 0; i < reviewCount; i++) {
+            int rating = 1 + random.nextInt(5);
+            histogram.merge(String.valueOf(rating), 1, Integer::sum);
+            ratingSum += rating;
+        }
+        return Restaurant.builder()
+                .id(id)
+                .name("Restaurant " + id)
+                .cuisineType("Italian")
+                .contactInformation("+44 20 7946 0000")
+                .averageRating(reviewCount == 0 ? 0f : (float) ratingSum / reviewCount)
+                .ratingSum(ratingSum)
+                .reviewCount(reviewCount)
+                .ratingHistogram(histogram)
+                .geoLocation(new GeoPoint(51.3 + random.nextDouble() * 0.4, -0.5 + random.nextDouble() * 0.7))
+                .address(Address.builder()
+                        .streetNumber(String.valueOf(1 + random.nextInt(200)))
+                        .streetName("High Street")
+                        .city("London")
+                        .postalCode("SW1A 1AA")
+                        .country("United Kingdom")
+                        .build())
+                .photos(List.of(photo("photo-" + id + "-1.jpg"), photo("photo-" + id + "-2.jpg")))
+                .build();
+    }
+
+    // The first review is by AUTHOR_ID and was just posted, so it can still be edited
+    static List<Review> reviews(String restaurantId, int count, Random random) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Review> reviews = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            reviews.add(Review.builder()
+                    .id(restaurantId + "-review-" + i)
+                    .restaurantId(restaurantId)
+                    .content("Review " + i + " of " + restaurantId)
+                    .rating(1 + random.nextInt(5))
+                    .datePosted(i == 0 ? now : now.minusMinutes(random.nextInt(1_000_000)))
+                    .lastEdited(now)
+                    .photos(List.of())
+                    .writtenBy(User.builder().id(i == 0 ? AUTHOR_ID : "user-" + i).username("user" + i).build())
+                    .build());
+        }
+        return reviews;
+    }
+
+    static List<RestaurantSearchResult> searchResults(int count, Random random) {
+        List<RestaurantSearchResult> results = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            results.add(new RestaurantSearchResult(
+                    restaurant("r" + i, random.nextInt(500), random),
+                    random.nextDouble() * 10));
+        }
+        return results;
+    }
+
+    private static Photo photo(String url) {
+        return Photo.builder().url(url).uploadDate(LocalDateTime.now()).build();
+    }
+
+    static RestaurantService restaurantService(Map<String, Restaurant> restaurants) {
+        return new RestaurantService() {
+            @Override
+            public Restaurant createRestaurant(RestaurantCreateUpdateRequest request) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public Page<RestaurantSearchResult> searchRestaurants(
+                    String query, Float minRating, Float latitude, Float longitude, Float radius, Pageable pageable) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public List<Restaurant> suggestRestaurants(String prefix, int size) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public Optional<Restaurant> getRestaurant(String id) {
+                return Optional.ofNullable(restaurants.get(id));
+            }
+
+            @Override
+            public Optional<Restaurant> getLatestRestaurant(String id) {
+                return getRestaurant(id);
+            }
+
+            @Override
+            public Restaurant updateRestaurant(String id, RestaurantCreateUpdateRequest request) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void deleteRestaurant(String id) {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    static RestaurantRepository restaurantRepository(Map<String, Restaurant> restaurants) {
+        return stub(RestaurantRepository.class, (method, args) -> switch (method.getName()) {
+            case "findById" -> Optional.ofNullable(restaurants.get((String) args[0]));
+            case "forEachSummary" -> {
+                restaurants.values().forEach((Consumer<Restaurant>) args[0]);
+                yield null;
+            }
+            case "applyRatingChange" -> {
+                applyRatingChange(restaurants.get((String) args[0]), (Integer) args[1], (Integer) args[2]);
+                yield null;
+            }
+            default -> throw new UnsupportedOperationException(method.getName());
+        });
+    }
+
+    static ReviewRepository reviewRepository(Map<String, Review> reviews) {
+        return stub(ReviewRepository.class, (method, args) -> switch (method.getName()) {
+            case "findById" -> Optional.ofNullable(reviews.get((String) args[0]));
+            case "save" -> {
+                Review review = (Review) args[0];
+                reviews.put(review.getId(), review);
+                yield review;
+            }
+            case "findByRestaurantId" -> findByRestaurantId(reviews, (String) args[0], (Pageable) args[1]);
+            default -> throw new UnsupportedOperationException(method.getName());
+        });
+    }
+
+    private static Page<Review> findByRestaurantId(Map<String, Review> reviews, String restaurantId, Pageable pageable) {
+        List<Review> matching = reviews.values().stream()
+                .filter(review -> restaurantId.equals(review.getRestaurantId()))
+                .sorted(comparator(pageable.getSort()))
+                .toList();
+        int from = (int) Math.min(pageable.getOffset(), matching.size());
+        int to = Math.min(from + pageable.getPageSize(), matching.size());
+        return new PageImpl<>(matching.subList(from, to), pageable, matching.size());
+    }
+
+    private static Comparator<Review> comparator(Sort sort) {
+        Comparator<Review> comparator = (a, b) -> 0;
+        for (Sort.Order order : sort) {
+            Comparator<Review> byProperty = switch (order.getProperty()) {
+                case "datePosted" -> Comparator.comparing(Review::getDatePosted);
+                case "rating" -> Comparator.comparing(Review::getRating);
+                case "id" -> Comparator.comparing(Review::getId);
+                default -> throw new IllegalArgumentException("Unsupported sort: " + order.getProperty());
+            };
+            comparator = comparator.thenComparing(order.isAscending() ? byProperty : byProperty.reversed());
+        }
+        return comparator;
+    }
+
+    // Same arithmetic as the painless script of RestaurantRatingRepositoryImpl
+    private static void applyRatingChange(Restaurant restaurant, Integer addedRating, Integer removedRating) {
+        long sum = restaurant.getRatingSum();
+        int count = restaurant.getReviewCount();
+        Map<String, Integer> histogram = restaurant.getRatingHistogram();
+        if (removedRating != null) {
+            sum -= removedRating;
+            count--;
+            histogram.merge(String.valueOf(removedRating), -1, Integer::sum);
+        }
+        if (addedRating != null) {
+            sum += addedRating;
+            count++;
+            histogram.merge(String.valueOf(addedRating), 1, Integer::sum);
+        }
+        restaurant.setRatingSum(sum);
+        restaurant.setReviewCount(count);
+        restaurant.setAverageRating(count == 0 ? 0f : (float) sum / count);
+    }
+
+    private static <T> T stub(Class<T> type, BiFunction<Method, Object[], Object> handler) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                return switch (method.getName()) {
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    default -> type.getSimpleName() + " stub";
+                };
+            }
+            return handler.apply(method, args);
+        }));
+    }
+}
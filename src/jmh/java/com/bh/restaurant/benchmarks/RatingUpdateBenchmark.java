@@ -0,0 +1,88 @@
+package com.bh.restaurant.benchmarks;
+
+import com.bh.restaurant.domain.ReviewCreateUpdateRequest;
+import com.bh.restaurant.domain.entities.Restaurant;
+import com.bh.restaurant.domain.entities.Review;
+import com.bh.restaurant.domain.entities.User;
+import com.bh.restaurant.repositories.RestaurantRepository;
+import com.bh.restaurant.services.impl.ReviewServiceImpl;
+import com.bh.restaurant.support.OptimisticRetryExecutor;
+import com.bh.restaurant.support.RestaurantGeoIndex;
+import com.bh.restaurant.support.SearchResultCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Changing the rating of a review: the service path plus the rating aggregate update, which
+// replaced recomputing the average over all reviews. The cost should not grow with reviewCount.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RatingUpdateBenchmark {
+
+    @Param({"10", "1000", "50000"})
+    private int reviewCount;
+
+    private ReviewServiceImpl reviewService;
+    private User author;
+    private String reviewId;
+    private ReviewCreateUpdateRequest[] requests;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        Map<String, Restaurant> restaurants = new HashMap<>();
+        restaurants.put("r1", BenchmarkFixtures.restaurant("r1", reviewCount, random));
+        Map<String, Review> reviews = new HashMap<>();
+        BenchmarkFixtures.reviews("r1", reviewCount, random).forEach(review -> reviews.put(review.getId(), review));
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        RestaurantRepository restaurantRepository = BenchmarkFixtures.restaurantRepository(restaurants);
+        RestaurantGeoIndex restaurantGeoIndex = new RestaurantGeoIndex(restaurantRepository, 0.05, meterRegistry);
+        restaurantGeoIndex.reload();
+
+        reviewService = new ReviewServiceImpl(
+                restaurantRepository,
+                BenchmarkFixtures.reviewRepository(reviews),
+                BenchmarkFixtures.restaurantService(restaurants),
+                new OptimisticRetryExecutor(meterRegistry),
+                null, // cursors are not used
+                new SearchResultCache(1000, Duration.ofSeconds(30), 7, meterRegistry),
+                restaurantGeoIndex,
+                meterRegistry);
+
+        // The first review was written by this author
+        author = User.builder().id(BenchmarkFixtures.AUTHOR_ID).build();
+        reviewId = "r1-review-0";
+        requests = new ReviewCreateUpdateRequest[5];
+        for (int rating = 1; rating <= 5; rating++) {
+            requests[rating - 1] = new ReviewCreateUpdateRequest("Updated review", rating, List.of("photo-1.jpg"));
+        }
+    }
+
+    @Benchmark
+    public Review updateRating() {
+        ReviewCreateUpdateRequest request = requests[next++ % requests.length];
+        return reviewService.updateReview(author, "r1", reviewId, request);
+    }
+}
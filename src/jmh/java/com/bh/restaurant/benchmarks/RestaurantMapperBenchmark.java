@@ -0,0 +1,53 @@
+package com.bh.restaurant.benchmarks;
+
+import com.bh.restaurant.domain.dtos.RestaurantDto;
+import com.bh.restaurant.domain.dtos.RestaurantSummaryDto;
+import com.bh.restaurant.domain.entities.Restaurant;
+import com.bh.restaurant.mappers.RestaurantMapper;
+import com.bh.restaurant.mappers.RestaurantMapperImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Restaurant to DTO mapping. The rating is derived from the stored aggregates,
+// so the cost should not depend on the number of reviews.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RestaurantMapperBenchmark {
+
+    @Param({"10", "1000", "50000"})
+    private int reviewCount;
+
+    private final RestaurantMapper restaurantMapper = new RestaurantMapperImpl();
+    private Restaurant restaurant;
+
+    @Setup
+    public void setUp() {
+        restaurant = BenchmarkFixtures.restaurant("r1", reviewCount, new Random(42));
+    }
+
+    @Benchmark
+    public RestaurantDto toRestaurantDto() {
+        return restaurantMapper.toRestaurantDto(restaurant);
+    }
+
+    @Benchmark
+    public RestaurantSummaryDto toSummaryDto() {
+        return restaurantMapper.toSummaryDto(restaurant);
+    }
+}
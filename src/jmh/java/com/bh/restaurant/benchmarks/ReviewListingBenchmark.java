@@ -0,0 +1,79 @@
+package com.bh.restaurant.benchmarks;
+
+import com.bh.restaurant.domain.entities.Restaurant;
+import com.bh.restaurant.domain.entities.Review;
+import com.bh.restaurant.services.impl.ReviewServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// ReviewServiceImpl.listReviews: sort translation and paging, with the repository stub
+// standing in for Elasticsearch's sort
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReviewListingBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+
+    @Param({"10", "1000", "50000"})
+    private int reviewCount;
+
+    @Param({"datePosted", "rating"})
+    private String sortBy;
+
+    private ReviewServiceImpl reviewService;
+    private Pageable firstPage;
+    private Pageable middlePage;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        Map<String, Restaurant> restaurants = new HashMap<>();
+        restaurants.put("r1", BenchmarkFixtures.restaurant("r1", reviewCount, random));
+        Map<String, Review> reviews = new HashMap<>();
+        BenchmarkFixtures.reviews("r1", reviewCount, random).forEach(review -> reviews.put(review.getId(), review));
+
+        reviewService = new ReviewServiceImpl(
+                BenchmarkFixtures.restaurantRepository(restaurants),
+                BenchmarkFixtures.reviewRepository(reviews),
+                BenchmarkFixtures.restaurantService(restaurants),
+                null, null, null, null, // only used by writes and cursor pages
+                new SimpleMeterRegistry());
+
+        Sort sort = Sort.by(Sort.Direction.DESC, sortBy);
+        firstPage = PageRequest.of(0, PAGE_SIZE, sort);
+        middlePage = PageRequest.of(reviewCount / PAGE_SIZE / 2, PAGE_SIZE, sort);
+    }
+
+    @Benchmark
+    public Page<Review> firstPage() {
+        return reviewService.listReviews("r1", firstPage);
+    }
+
+    @Benchmark
+    public Page<Review> middlePage() {
+        return reviewService.listReviews("r1", middlePage);
+    }
+}
@@ -0,0 +1,54 @@
+package com.bh.restaurant.benchmarks;
+
+import com.bh.restaurant.domain.dtos.RestaurantSummaryDto;
+import com.bh.restaurant.mappers.RestaurantMapper;
+import com.bh.restaurant.mappers.RestaurantMapperImpl;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// JSON body of GET /api/restaurants: a Page<RestaurantSummaryDto>, written with an ObjectMapper
+// configured like Spring Boot's
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SearchPageSerializationBenchmark {
+
+    @Param({"20", "100"})
+    private int pageSize;
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private Page<RestaurantSummaryDto> page;
+
+    @Setup
+    public void setUp() {
+        RestaurantMapper restaurantMapper = new RestaurantMapperImpl();
+        page = new PageImpl<>(BenchmarkFixtures.searchResults(pageSize, new Random(42)), PageRequest.of(0, pageSize), 10_000)
+                .map(restaurantMapper::toSummaryDto);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(page);
+    }
+}
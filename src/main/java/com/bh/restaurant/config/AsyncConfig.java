@@ -0,0 +1,33 @@
+package com.bh.restaurant.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+@Slf4j
+@EnableAsync // enables @Async
+public class AsyncConfig {
+
+    public static final String THUMBNAIL_EXECUTOR = "thumbnailExecutor";
+
+    // Bounded pool and queue for thumbnail generation. Image decoding is CPU and memory heavy,
+    // so only a few run at once. When the queue is full the task is dropped instead of blocking
+    // the upload, the photo is then served in its original size.
+    @Bean(name = THUMBNAIL_EXECUTOR)
+    public ThreadPoolTaskExecutor thumbnailExecutor(
+            @Value("${app.photos.thumbnails.pool-size:2}") int poolSize,
+            @Value("${app.photos.thumbnails.queue-capacity:100}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("thumbnail-");
+        executor.setRejectedExecutionHandler((task, pool) ->
+                log.warn("Thumbnail queue is full, skipping thumbnail generation"));
+        return executor;
+    }
+}
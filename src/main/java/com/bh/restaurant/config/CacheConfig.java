@@ -0,0 +1,53 @@
+package com.bh.restaurant.config;
+
+import com.bh.restaurant.domain.entities.Restaurant;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.List;
+
+@Configuration
+@EnableCaching // enables @Cacheable / @CacheEvict
+public class CacheConfig {
+
+    // Cache for RestaurantService.getRestaurant, keyed by restaurant id
+    public static final String RESTAURANTS_CACHE = "restaurants";
+
+    @Bean
+    public CacheManager cacheManager(
+            @Value("${app.cache.restaurants.max-weight:50000000}") long maxWeight,
+            @Value("${app.cache.restaurants.ttl:10m}") Duration ttl) {
+        // Caffeine uses W-TinyLFU eviction: hot restaurants stay cached, one-off reads don't push them out
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.setCaffeine(Caffeine.newBuilder()
+                .maximumWeight(maxWeight) // roughly in bytes, see estimateWeight
+                .weigher((key, value) -> estimateWeight(value))
+                .expireAfterWrite(ttl) // bounds staleness for writes made by other app instances
+                .recordStats()); // hit / miss ratio, exposed as cache.gets metrics
+        cacheManager.setCacheNames(List.of(RESTAURANTS_CACHE)); // created upfront so metrics are bound at startup
+        cacheManager.setAllowNullValues(false);
+        return cacheManager;
+    }
+
+    // Rough size of a cached restaurant in bytes, so that big restaurants take more room than small ones
+    private static int estimateWeight(Object value) {
+        if (!(value instanceof Restaurant restaurant)) {
+            return 1;
+        }
+        int weight = 512; // object headers, numbers, address and opening hours
+        weight += length(restaurant.getName()) + length(restaurant.getCuisineType())
+                + length(restaurant.getContactInformation());
+        weight += restaurant.getPhotos() == null ? 0 : restaurant.getPhotos().size() * 128;
+        return weight;
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length() * 2;
+    }
+}
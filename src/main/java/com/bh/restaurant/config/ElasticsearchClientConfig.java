@@ -0,0 +1,33 @@
+package com.bh.restaurant.config;
+
+import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
+import org.elasticsearch.client.RestClientBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.elasticsearch.RestClientBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class ElasticsearchClientConfig {
+
+    // The low-level client allows 10 connections per node and 30 in total by default. With more
+    // bulkhead permits than connections, calls that got a permit would queue again in the HTTP
+    // client, where neither max-wait nor the bulkhead metrics see them.
+    // The pool is sized to the bulkhead, so every permit has a connection.
+    @Bean
+    public RestClientBuilderCustomizer connectionPoolCustomizer(
+            @Value("${app.bulkhead.elasticsearch.max-concurrent-calls:64}") int maxConcurrentCalls) {
+        return new RestClientBuilderCustomizer() {
+            @Override
+            public void customize(RestClientBuilder builder) {
+                // only the HTTP client is customized
+            }
+
+            @Override
+            public void customize(HttpAsyncClientBuilder builder) {
+                builder.setMaxConnPerRoute(maxConcurrentCalls);
+                builder.setMaxConnTotal(maxConcurrentCalls);
+            }
+        };
+    }
+}
@@ -0,0 +1,95 @@
+package com.bh.restaurant.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
+import org.elasticsearch.client.RestClientBuilder;
+import org.springframework.boot.autoconfigure.elasticsearch.RestClientBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.Set;
+
+@Configuration
+public class ElasticsearchMetricsConfig {
+
+    // Request paths of document writes, e.g. PUT /restaurants/_doc/{id} or POST /_bulk
+    private static final Set<String> WRITE_OPERATIONS = Set.of("_doc", "_create", "_update", "_bulk");
+
+    // Size of the documents sent to Elasticsearch, taken from the request bodies of the client.
+    // For _bulk requests it is the size of the whole batch.
+    @Bean
+    public RestClientBuilderCustomizer documentSizeMetricsCustomizer(MeterRegistry meterRegistry) {
+        HttpRequestInterceptor interceptor = (request, context) -> recordDocumentSize(request, meterRegistry);
+        return new RestClientBuilderCustomizer() {
+            @Override
+            public void customize(RestClientBuilder builder) {
+                // only the HTTP client is customized
+            }
+
+            @Override
+            public void customize(HttpAsyncClientBuilder builder) {
+                builder.addInterceptorLast(interceptor);
+            }
+        };
+    }
+
+    private static void recordDocumentSize(HttpRequest request, MeterRegistry meterRegistry) throws IOException {
+        if (!(request instanceof HttpEntityEnclosingRequest enclosing) || enclosing.getEntity() == null) {
+            return;
+        }
+
+        // /{index}/{operation}/... or /{operation} for requests across indexes
+        String[] segments = URI.create(request.getRequestLine().getUri()).getPath().split("/");
+        String index = segments.length > 1 && !segments[1].startsWith("_") ? segments[1] : "none";
+        String operation = segments.length > 1 && segments[1].startsWith("_") ? segments[1]
+                : segments.length > 2 ? segments[2] : "";
+        if (!WRITE_OPERATIONS.contains(operation)) {
+            return;
+        }
+
+        // The Java client sends bodies chunked, without a length, from buffers it already holds.
+        // Counting them is a pass over bytes in memory, nothing is serialized again.
+        HttpEntity entity = enclosing.getEntity();
+        long size = entity.getContentLength();
+        if (size < 0 && entity.isRepeatable() && !entity.isStreaming()) {
+            CountingOutputStream counter = new CountingOutputStream();
+            entity.writeTo(counter);
+            size = counter.count;
+        }
+        if (size < 0) {
+            return;
+        }
+
+        DistributionSummary.builder("elasticsearch.document.size")
+                .baseUnit("bytes")
+                .minimumExpectedValue(64.0)
+                .maximumExpectedValue(16.0 * 1024 * 1024)
+                .tag("index", index)
+                .tag("operation", operation)
+                .register(meterRegistry)
+                .record(size);
+    }
+
+    private static class CountingOutputStream extends OutputStream {
+
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.bh.restaurant.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+@Configuration
+@EnableScheduling // enables @Scheduled, e.g. the periodic rebuild of RestaurantGeoIndex
+public class SchedulingConfig {
+}
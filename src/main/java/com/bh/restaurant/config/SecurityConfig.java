@@ -1,22 +1,40 @@
 package com.bh.restaurant.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
+import org.springframework.security.oauth2.server.resource.authentication.JwtGrantedAuthoritiesConverter;
 import org.springframework.security.web.SecurityFilterChain;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
 @Configuration
 @EnableWebSecurity // enables Spring Security's web security support.
 public class SecurityConfig {
 
+    // Realm roles of the Keycloak access token: {"realm_access": {"roles": ["admin", ...]}}
+    private static final String REALM_ACCESS_CLAIM = "realm_access";
+
     @Bean
-    public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain filterChain(
+            HttpSecurity http,
+            @Value("${app.security.actuator-role:admin}") String actuatorRole) throws Exception {
         http
                 .authorizeHttpRequests(auth -> auth
+                        // Health checks and metric scraping need a token, everything else of the actuator
+                        // (e.g. DELETE /actuator/caches or /actuator/slowqueries) also needs the actuator role
+                        .requestMatchers("/actuator/health/**", "/actuator/prometheus").authenticated()
+                        .requestMatchers("/actuator/**").hasRole(actuatorRole)
                         .requestMatchers(HttpMethod.GET, "/api/photos/**").permitAll() // GET istekleri için kimlik doğrulaması gerekmez
                         // Allow public access to restaurant search
                         .requestMatchers("/api/restaurants/**").permitAll()
@@ -38,6 +56,17 @@ public class SecurityConfig {
 
     @Bean
     public JwtAuthenticationConverter jwtAuthenticationConverter() {
-        return new JwtAuthenticationConverter();
+        // Scopes as before (SCOPE_...), plus the realm roles as ROLE_...
+        JwtGrantedAuthoritiesConverter scopes = new JwtGrantedAuthoritiesConverter();
+        JwtAuthenticationConverter converter = new JwtAuthenticationConverter();
+        converter.setJwtGrantedAuthoritiesConverter(jwt -> {
+            List<GrantedAuthority> authorities = new ArrayList<>(scopes.convert(jwt));
+            Map<String, Object> realmAccess = jwt.getClaimAsMap(REALM_ACCESS_CLAIM);
+            if (realmAccess != null && realmAccess.get("roles") instanceof Collection<?> roles) {
+                roles.forEach(role -> authorities.add(new SimpleGrantedAuthority("ROLE_" + role)));
+            }
+            return authorities;
+        });
+        return converter;
     }
 }
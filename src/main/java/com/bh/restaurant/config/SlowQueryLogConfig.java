@@ -0,0 +1,119 @@
+package com.bh.restaurant.config;
+
+import co.elastic.clients.transport.rest_client.RestClientOptions;
+import com.bh.restaurant.support.QueryFingerprint;
+import com.bh.restaurant.support.SlowQueryLog;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponse;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.EntityUtils;
+import org.elasticsearch.client.HeapBufferedAsyncResponseConsumer;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestClientBuilder;
+import org.springframework.boot.autoconfigure.elasticsearch.RestClientBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+// Times every Elasticsearch request in the HTTP client, from sending the request to the complete
+// response, and records it in the SlowQueryLog. Works for all requests, whichever repository
+// method or ElasticsearchOperations call they come from.
+@Configuration
+public class SlowQueryLogConfig {
+
+    // Same as the client's default, larger responses fail
+    private static final int RESPONSE_BUFFER_LIMIT = 100 * 1024 * 1024;
+
+    private static final String FINGERPRINT = SlowQueryLogConfig.class.getName() + ".fingerprint";
+    private static final String START_NANOS = SlowQueryLogConfig.class.getName() + ".start";
+
+    // Fingerprints the request when it is sent; the client uses the same HttpContext for its response
+    @Bean
+    public RestClientBuilderCustomizer slowQueryLogCustomizer() {
+        HttpRequestInterceptor interceptor = (request, context) -> {
+            context.setAttribute(FINGERPRINT, QueryFingerprint.of(
+                    request.getRequestLine().getMethod(),
+                    request.getRequestLine().getUri(),
+                    () -> requestBody(request instanceof HttpEntityEnclosingRequest enclosing
+                            ? enclosing.getEntity()
+                            : null)));
+            context.setAttribute(START_NANOS, System.nanoTime());
+        };
+        return new RestClientBuilderCustomizer() {
+            @Override
+            public void customize(RestClientBuilder builder) {
+                // only the HTTP client is customized
+            }
+
+            @Override
+            public void customize(HttpAsyncClientBuilder builder) {
+                builder.addInterceptorLast(interceptor);
+            }
+        };
+    }
+
+    // Used by the Elasticsearch transport for every request, reads the response as the default
+    // consumer does and records it once complete
+    @Bean
+    public RestClientOptions restClientOptions(SlowQueryLog slowQueryLog) {
+        return new RestClientOptions(RequestOptions.DEFAULT.toBuilder()
+                .setHttpAsyncResponseConsumerFactory(() -> new RecordingResponseConsumer(slowQueryLog))
+                .build());
+    }
+
+    private static byte[] requestBody(HttpEntity entity) {
+        if (entity == null || !entity.isRepeatable()) {
+            return null;
+        }
+        try {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            entity.writeTo(body);
+            return body.toByteArray();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static class RecordingResponseConsumer extends HeapBufferedAsyncResponseConsumer {
+
+        private final SlowQueryLog slowQueryLog;
+
+        RecordingResponseConsumer(SlowQueryLog slowQueryLog) {
+            super(RESPONSE_BUFFER_LIMIT);
+            this.slowQueryLog = slowQueryLog;
+        }
+
+        @Override
+        protected HttpResponse buildResult(HttpContext context) throws Exception {
+            HttpResponse response = super.buildResult(context);
+            String fingerprint = (String) context.getAttribute(FINGERPRINT);
+            Long startNanos = (Long) context.getAttribute(START_NANOS);
+            if (fingerprint == null || startNanos == null) {
+                return response;
+            }
+            long durationNanos = System.nanoTime() - startNanos;
+
+            HttpEntity entity = response.getEntity();
+            long responseBytes = entity == null ? 0 : entity.getContentLength();
+            byte[] body = null;
+            if (entity != null && (responseBytes < 0 || slowQueryLog.isSlow(durationNanos))) {
+                // The buffered body can only be read once, the client gets a copy of it
+                body = EntityUtils.toByteArray(entity);
+                ByteArrayEntity copy = new ByteArrayEntity(body, ContentType.get(entity));
+                copy.setContentEncoding(entity.getContentEncoding());
+                response.setEntity(copy);
+                responseBytes = body.length;
+            }
+
+            slowQueryLog.record(fingerprint, response.getStatusLine().getStatusCode(), durationNanos, responseBytes, body);
+            return response;
+        }
+    }
+}
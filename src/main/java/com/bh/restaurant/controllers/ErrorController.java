@@ -2,9 +2,15 @@ package com.bh.restaurant.controllers;
 
 import com.bh.restaurant.domain.dtos.ErrorDto;
 import com.bh.restaurant.exceptions.BaseException;
+import com.bh.restaurant.exceptions.BulkheadFullException;
+import com.bh.restaurant.exceptions.InvalidCursorException;
+import com.bh.restaurant.exceptions.InvalidImportException;
+import com.bh.restaurant.exceptions.InvalidPhotoException;
+import com.bh.restaurant.exceptions.PhotoTooLargeException;
 import com.bh.restaurant.exceptions.RestaurantNotFoundException;
 import com.bh.restaurant.exceptions.ReviewNotAllowedException;
 import com.bh.restaurant.exceptions.StorageException;
+import com.bh.restaurant.exceptions.WriteConflictException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -32,6 +38,46 @@ public class ErrorController {
         return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
     }
 
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<ErrorDto> handleInvalidCursorException(InvalidCursorException ex) {
+        log.error("Caught InvalidCursorException", ex);
+        ErrorDto errorDto = ErrorDto.builder()
+                .status(HttpStatus.BAD_REQUEST.value())
+                .message("The specified cursor is not valid")
+                .build();
+        return new ResponseEntity<>(errorDto, HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(InvalidImportException.class)
+    public ResponseEntity<ErrorDto> handleInvalidImportException(InvalidImportException ex) {
+        log.warn("Caught InvalidImportException", ex);
+        ErrorDto errorDto = ErrorDto.builder()
+                .status(HttpStatus.BAD_REQUEST.value())
+                .message(ex.getMessage())
+                .build();
+        return new ResponseEntity<>(errorDto, HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(InvalidPhotoException.class)
+    public ResponseEntity<ErrorDto> handleInvalidPhotoException(InvalidPhotoException ex) {
+        log.warn("Caught InvalidPhotoException", ex);
+        ErrorDto errorDto = ErrorDto.builder()
+                .status(HttpStatus.UNSUPPORTED_MEDIA_TYPE.value())
+                .message("The uploaded file is not a supported image (JPEG, PNG, GIF or WebP)")
+                .build();
+        return new ResponseEntity<>(errorDto, HttpStatus.UNSUPPORTED_MEDIA_TYPE);
+    }
+
+    @ExceptionHandler(PhotoTooLargeException.class)
+    public ResponseEntity<ErrorDto> handlePhotoTooLargeException(PhotoTooLargeException ex) {
+        log.warn("Caught PhotoTooLargeException", ex);
+        ErrorDto errorDto = ErrorDto.builder()
+                .status(HttpStatus.PAYLOAD_TOO_LARGE.value())
+                .message("The uploaded photo is too large")
+                .build();
+        return new ResponseEntity<>(errorDto, HttpStatus.PAYLOAD_TOO_LARGE);
+    }
+
     @ExceptionHandler(RestaurantNotFoundException.class)
     public ResponseEntity<ErrorDto> handleRestaurantNotFoundException(RestaurantNotFoundException ex) {
         log.error("Caught RestaurantNotFoundException", ex);
@@ -58,6 +104,26 @@ public class ErrorController {
                 .build();
         return new ResponseEntity<>(errorDto, HttpStatus.BAD_REQUEST);
     }
+    @ExceptionHandler(WriteConflictException.class)
+    public ResponseEntity<ErrorDto> handleWriteConflictException(WriteConflictException ex) {
+        log.warn("Caught WriteConflictException", ex);
+        ErrorDto errorDto = ErrorDto.builder()
+                .status(HttpStatus.CONFLICT.value())
+                .message("The resource is being modified by another request, please try again")
+                .build();
+        return new ResponseEntity<>(errorDto, HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler(BulkheadFullException.class)
+    public ResponseEntity<ErrorDto> handleBulkheadFullException(BulkheadFullException ex) {
+        log.warn("Caught BulkheadFullException: {}", ex.getMessage());
+        ErrorDto errorDto = ErrorDto.builder()
+                .status(HttpStatus.SERVICE_UNAVAILABLE.value())
+                .message("The service is busy, please try again later")
+                .build();
+        return new ResponseEntity<>(errorDto, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
     // Handle storage-related exceptions
     @ExceptionHandler(StorageException.class)
     public ResponseEntity<ErrorDto> handleStorageException(StorageException ex) {
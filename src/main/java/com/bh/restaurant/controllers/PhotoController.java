@@ -4,21 +4,28 @@ import com.bh.restaurant.domain.dtos.PhotoDto;
 import com.bh.restaurant.domain.entities.Photo;
 import com.bh.restaurant.mappers.PhotoMapper;
 import com.bh.restaurant.services.PhotoService;
+import com.bh.restaurant.support.FileResponseWriter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.core.io.Resource;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
-import org.springframework.http.MediaTypeFactory;
-import org.springframework.http.ResponseEntity;
+import org.springframework.http.CacheControl;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Optional;
+
 @RestController
 @RequiredArgsConstructor
 @RequestMapping("/api/photos")
 public class PhotoController {
     private final PhotoService photoService;
     private final PhotoMapper photoMapper;
+    private final FileResponseWriter fileResponseWriter;
+
+    private static final Duration PENDING_THUMBNAIL_MAX_AGE = Duration.ofMinutes(1);
 
     @PostMapping
     public PhotoDto uploadPhoto(@RequestParam("file") MultipartFile file) {
@@ -26,15 +33,33 @@ public class PhotoController {
         return photoMapper.toDto(savedPhoto);
     }
 
+    // Raw image bytes as the request body (e.g. Content-Type: image/jpeg), no multipart buffering.
+    // The body is streamed to storage in one pass, non-images and oversized uploads are rejected early.
+    @PostMapping("/stream")
+    public PhotoDto uploadPhotoStream(HttpServletRequest request) throws IOException {
+        Photo savedPhoto = photoService.uploadPhoto(request.getInputStream(), request.getContentLengthLong());
+        return photoMapper.toDto(savedPhoto);
+    }
+
     @GetMapping("/{id:.+}")
-    public ResponseEntity<Resource> getPhoto(@PathVariable String id) {
-        return photoService.getPhotoAsResource(id).map(photo ->
-                ResponseEntity.ok()
-                        .contentType(MediaTypeFactory
-                                .getMediaType(photo) // Detect the media type (e.g., image/jpeg, image/png)
-                                .orElse(MediaType.APPLICATION_OCTET_STREAM)) // Fallback to application/octet-stream if not found
-                        .header(HttpHeaders.CONTENT_DISPOSITION, "inline")
-                        .body(photo)
-        ).orElse(ResponseEntity.notFound().build());
+    public void getPhoto(
+            @PathVariable String id,
+            @RequestParam(required = false) Integer size, // Requested width in pixels, e.g. 200 for list cards
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        Optional<Resource> photo = photoService.getPhotoAsResource(id, size);
+        if (photo.isEmpty()) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        // Photo ids are never reused, so a served file never changes and can be cached for good.
+        // The exception is the original served in place of a thumbnail that may not be generated yet.
+        boolean thumbnailPending = size != null && photo.equals(photoService.getPhotoAsResource(id));
+        CacheControl cacheControl = thumbnailPending
+                ? CacheControl.maxAge(PENDING_THUMBNAIL_MAX_AGE).cachePublic()
+                : CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable();
+
+        fileResponseWriter.write(photo.get(), cacheControl, request, response);
     }
 }
@@ -1,18 +1,32 @@
 package com.bh.restaurant.controllers;
 
+import com.bh.restaurant.domain.ImportFormat;
 import com.bh.restaurant.domain.RestaurantCreateUpdateRequest;
+import com.bh.restaurant.domain.RestaurantImportResult;
+import com.bh.restaurant.domain.RestaurantSearchResult;
 import com.bh.restaurant.domain.dtos.RestaurantCreateUpdateRequestDto;
 import com.bh.restaurant.domain.dtos.RestaurantDto;
+import com.bh.restaurant.domain.dtos.RestaurantImportResultDto;
+import com.bh.restaurant.domain.dtos.RestaurantSuggestionDto;
 import com.bh.restaurant.domain.dtos.RestaurantSummaryDto;
 import com.bh.restaurant.domain.entities.Restaurant;
 import com.bh.restaurant.mappers.RestaurantMapper;
+import com.bh.restaurant.services.RestaurantImportService;
 import com.bh.restaurant.services.RestaurantService;
+import com.bh.restaurant.support.VersionETag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+
+import java.io.IOException;
+import java.util.List;
 
 @RestController
 @RequestMapping(path = "/api/restaurants")
@@ -21,6 +35,9 @@ public class RestaurantController {
 
     private final RestaurantService restaurantService;
     private final RestaurantMapper restaurantMapper;
+    private final RestaurantImportService restaurantImportService;
+
+    private static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv");
 
     @PostMapping
     public ResponseEntity<RestaurantDto> createRestaurant(@Valid @RequestBody RestaurantCreateUpdateRequestDto requestDto) {
@@ -31,6 +48,17 @@ public class RestaurantController {
         return ResponseEntity.ok(createdRestaurantDto);
     }
 
+    // Bulk import, streams NDJSON (one RestaurantCreateUpdateRequestDto per line) or CSV (see
+    // RestaurantImportServiceImpl for the columns). Invalid lines are skipped and listed in the result.
+    @PostMapping(path = "/import", consumes = {"application/x-ndjson", "text/csv"})
+    public RestaurantImportResultDto importRestaurants(HttpServletRequest request) throws IOException {
+        ImportFormat format = MediaType.parseMediaType(request.getContentType()).isCompatibleWith(TEXT_CSV)
+                ? ImportFormat.CSV
+                : ImportFormat.NDJSON;
+        RestaurantImportResult result = restaurantImportService.importRestaurants(request.getInputStream(), format);
+        return restaurantMapper.toImportResultDto(result);
+    }
+
     @GetMapping
     public Page<RestaurantSummaryDto> searchRestaurants(
             @RequestParam(required = false) String q,
@@ -40,7 +68,7 @@ public class RestaurantController {
             @RequestParam(required = false) Float radius,
             @RequestParam(defaultValue = "1") int page,
             @RequestParam(defaultValue = "20") int size) {
-        Page<Restaurant> searchResult = restaurantService.searchRestaurants(
+        Page<RestaurantSearchResult> searchResult = restaurantService.searchRestaurants(
                 q,
                 minRating,
                 latitude,
@@ -51,10 +79,30 @@ public class RestaurantController {
         return searchResult.map(restaurantMapper::toSummaryDto);
     }
 
+    // Typeahead, called on every keystroke: names and cuisine types containing the words typed so far.
+    // An empty input has no suggestions.
+    @GetMapping("/suggest")
+    public List<RestaurantSuggestionDto> suggestRestaurants(
+            @RequestParam(required = false) String q,
+            @RequestParam(defaultValue = "10") int size) {
+        return restaurantService.suggestRestaurants(q, size).stream()
+                .map(restaurantMapper::toSuggestionDto)
+                .toList();
+    }
+
     @GetMapping("/{restaurantId}")
-    public ResponseEntity<RestaurantDto> getRestaurant(@PathVariable("restaurantId") String restaurantId) {
+    public ResponseEntity<RestaurantDto> getRestaurant(
+            @PathVariable("restaurantId") String restaurantId,
+            WebRequest webRequest) {
         return restaurantService.getRestaurant(restaurantId)
-                .map(restaurant -> ResponseEntity.ok(restaurantMapper.toRestaurantDto(restaurant)))
+                .map(restaurant -> {
+                    // Answer If-None-Match before mapping, a 304 has no body to build
+                    String eTag = VersionETag.of(restaurant);
+                    if (eTag != null && webRequest.checkNotModified(eTag)) {
+                        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).<RestaurantDto>build();
+                    }
+                    return ResponseEntity.ok().eTag(eTag).body(restaurantMapper.toRestaurantDto(restaurant));
+                })
                 .orElse(ResponseEntity.notFound().build());
     }
 
@@ -2,21 +2,27 @@ package com.bh.restaurant.controllers;
 
 import com.bh.restaurant.domain.ReviewCreateUpdateRequest;
 import com.bh.restaurant.domain.dtos.ReviewCreateUpdateRequestDto;
+import com.bh.restaurant.domain.dtos.ReviewCursorPageDto;
 import com.bh.restaurant.domain.dtos.ReviewDto;
 import com.bh.restaurant.domain.entities.Review;
 import com.bh.restaurant.domain.entities.User;
 import com.bh.restaurant.mappers.ReviewMapper;
+import com.bh.restaurant.services.RestaurantService;
 import com.bh.restaurant.services.ReviewService;
+import com.bh.restaurant.support.VersionETag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.data.web.SortDefault;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 @RequiredArgsConstructor
 @RestController
@@ -24,6 +30,8 @@ import org.springframework.web.bind.annotation.*;
 public class ReviewController {
     private final ReviewService reviewService;
     private final ReviewMapper reviewMapper;
+    private final RestaurantService restaurantService;
+
     @PostMapping
     public ResponseEntity<ReviewDto> createReview(
             @PathVariable("restaurantId") String restaurantId,
@@ -42,18 +50,43 @@ public class ReviewController {
     }
 
     @GetMapping
-    public Page<ReviewDto> listReviews(
+    public ResponseEntity<Page<ReviewDto>> listReviews(
             @PathVariable String restaurantId,
             @PageableDefault(
                     size = 20,
                     page = 0,
                     sort = "datePosted",
                     direction = Sort.Direction.DESC
-            ) Pageable pageable) {
+            ) Pageable pageable,
+            WebRequest webRequest) {
 
-        return reviewService
+        // Review writes bump the restaurant's version, so it identifies this page as well.
+        // Read from Elasticsearch rather than the cache, which can be stale for writes made through
+        // other instances: an unchanged page costs one realtime GET instead of a search.
+        String eTag = restaurantService.getLatestRestaurant(restaurantId)
+                .map(VersionETag::of)
+                .orElse(null);
+        if (eTag != null && webRequest.checkNotModified(eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+        }
+
+        Page<ReviewDto> reviews = reviewService
                 .listReviews(restaurantId, pageable)
                 .map(reviewMapper::toDto);
+        return ResponseEntity.ok().eTag(eTag).body(reviews);
+    }
+
+    // Cursor based pagination (search_after), stays cheap for deep pages.
+    // Pass the nextCursor of the previous response, with the same sort, to get the next page.
+    @GetMapping("/scroll")
+    public ReviewCursorPageDto scrollReviews(
+            @PathVariable String restaurantId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @SortDefault(sort = "datePosted", direction = Sort.Direction.DESC) Sort sort) {
+
+        return reviewMapper.toCursorPageDto(
+                reviewService.listReviewsAfter(restaurantId, sort, cursor, size));
     }
 
     @GetMapping("/{reviewId}")
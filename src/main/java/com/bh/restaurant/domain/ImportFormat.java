@@ -0,0 +1,7 @@
+package com.bh.restaurant.domain;
+
+// Input formats of the bulk restaurant import
+public enum ImportFormat {
+    NDJSON, // one RestaurantCreateUpdateRequestDto JSON object per line
+    CSV // header line with column names, then one restaurant per line
+}
@@ -0,0 +1,15 @@
+package com.bh.restaurant.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ImportLineError {
+    private long line; // 1-based line number in the input
+    private String message; // Why the line was not imported
+}
@@ -0,0 +1,21 @@
+package com.bh.restaurant.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class RestaurantImportResult {
+    private long imported; // Number of restaurants created
+    private long failed; // Number of lines that were not imported
+    @Builder.Default
+    private List<ImportLineError> errors = new ArrayList<>(); // Failed lines, capped at a configured maximum
+    private boolean errorsTruncated; // True when more lines failed than errors are listed
+}
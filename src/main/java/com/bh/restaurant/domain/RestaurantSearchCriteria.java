@@ -0,0 +1,30 @@
+package com.bh.restaurant.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class RestaurantSearchCriteria {
+    private String query; // Free text matched against name and cuisine type
+    private Float minRating; // Minimum average rating
+    private Float latitude; // Search origin, results are sorted by distance from it
+    private Float longitude;
+    private Float radiusKm; // Only return restaurants within this distance of the origin
+
+    public boolean hasQuery() {
+        return query != null && !query.trim().isEmpty();
+    }
+
+    public boolean hasLocation() {
+        return latitude != null && longitude != null;
+    }
+
+    public boolean hasRadius() {
+        return hasLocation() && radiusKm != null;
+    }
+}
@@ -0,0 +1,16 @@
+package com.bh.restaurant.domain;
+
+import com.bh.restaurant.domain.entities.Restaurant;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class RestaurantSearchResult {
+    private Restaurant restaurant; // Summary projection of the restaurant
+    private Double distanceKm; // Distance from the search origin, null when no location was given
+}
@@ -0,0 +1,18 @@
+package com.bh.restaurant.domain;
+
+import com.bh.restaurant.domain.entities.Review;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ReviewCursorPage {
+    private List<Review> reviews; // The reviews of this page
+    private String nextCursor; // Cursor for the next page, null when there are no more reviews
+}
@@ -7,6 +7,7 @@ import lombok.NoArgsConstructor;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 @Data
 @AllArgsConstructor
@@ -26,15 +27,17 @@ public class RestaurantDto {
 
     private GeoPointDto geoLocation;
 
+    private Boolean geoLocationPending;
+
     private AddressDto address;
 
     private OperatingHoursDto operatingHours;
 
     private List<PhotoDto> photos = new ArrayList<>();
 
-    private List<ReviewDto> reviews = new ArrayList<>();
-
     private UserDto createdBy;
 
     private Integer totalReviews;
+
+    private Map<String, Integer> ratingHistogram;
 }
@@ -0,0 +1,25 @@
+package com.bh.restaurant.domain.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class RestaurantImportResultDto {
+
+    private long imported;
+
+    private long failed;
+
+    @Builder.Default
+    private List<ImportLineErrorDto> errors = new ArrayList<>();
+
+    private boolean errorsTruncated;
+}
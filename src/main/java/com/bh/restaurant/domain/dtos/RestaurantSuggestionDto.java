@@ -0,0 +1,16 @@
+package com.bh.restaurant.domain.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class RestaurantSuggestionDto {
+    private String id;
+    private String name;
+    private String cuisineType;
+}
@@ -19,4 +19,5 @@ public class RestaurantSummaryDto {
     private Integer totalReviews;
     private AddressDto address;
     private List<PhotoDto> photos;
+    private Double distanceKm; // Only set when searching around a location
 }
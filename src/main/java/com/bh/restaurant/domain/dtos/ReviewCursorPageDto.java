@@ -0,0 +1,19 @@
+package com.bh.restaurant.domain.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ReviewCursorPageDto {
+
+    private List<ReviewDto> reviews;
+
+    private String nextCursor;
+}
@@ -9,12 +9,17 @@ import org.springframework.data.elasticsearch.annotations.Document;
 import org.springframework.data.elasticsearch.annotations.Field;
 import org.springframework.data.elasticsearch.annotations.FieldType;
 import org.springframework.data.elasticsearch.annotations.GeoPointField;
+import org.springframework.data.elasticsearch.annotations.InnerField;
+import org.springframework.data.elasticsearch.annotations.MultiField;
+import org.springframework.data.elasticsearch.core.query.SeqNoPrimaryTerm;
 import org.springframework.data.elasticsearch.core.geo.GeoPoint;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
-@Document(indexName = "restaurants") // Specify the index name for Elasticsearch
+// alwaysWriteMapping: new fields, e.g. the .suggest subfields, are added to an existing index on startup
+@Document(indexName = "restaurants", alwaysWriteMapping = true) // Specify the index name for Elasticsearch
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -24,21 +29,44 @@ public class Restaurant {
     @Id
     private String id;
 
-    @Field(type = FieldType.Text)
+    private SeqNoPrimaryTerm seqNoPrimaryTerm; // Not stored, makes save() a conditional write (optimistic concurrency control)
+
+    // name.suggest and cuisineType.suggest are indexed as search_as_you_type (shingles and edge n-grams) for typeahead
+    @MultiField(
+            mainField = @Field(type = FieldType.Text),
+            otherFields = @InnerField(suffix = "suggest", type = FieldType.Search_As_You_Type))
     private String name;
 
-    @Field(type = FieldType.Text)
+    @MultiField(
+            mainField = @Field(type = FieldType.Text),
+            otherFields = @InnerField(suffix = "suggest", type = FieldType.Search_As_You_Type))
     private String cuisineType;
 
     @Field(type = FieldType.Keyword)
     private String contactInformation;
 
     @Field(type = FieldType.Float)
-    private Float averageRating;
+    private Float averageRating; // Derived from ratingSum / reviewCount, kept for range queries
+
+    // Rating aggregates, maintained with O(1) deltas on every review write.
+    // Reviews are stored in the "reviews" index, only these aggregates are kept here.
+    @Field(type = FieldType.Long)
+    private Long ratingSum;
+
+    @Field(type = FieldType.Integer)
+    private Integer reviewCount;
+
+    @Field(type = FieldType.Object)
+    private Map<String, Integer> ratingHistogram; // Number of reviews per star, keyed "1" to "5"
 
     @GeoPointField
     private GeoPoint geoLocation;
 
+    // True while the address is geocoded in the background. geoLocation is then the previous
+    // location, or null for a new restaurant.
+    @Field(type = FieldType.Boolean)
+    private Boolean geoLocationPending;
+
     @Field(type = FieldType.Nested)
     private Address address;
 
@@ -48,9 +76,6 @@ public class Restaurant {
     @Field(type = FieldType.Nested)
     private List<Photo> photos = new ArrayList<>(); // to prevent null pointer exceptions.
 
-    @Field(type = FieldType.Nested)
-    private List<Review> reviews = new ArrayList<>(); // to prevent null pointer exceptions.
-
     @Field(type = FieldType.Nested)
     private User createdBy;
 }
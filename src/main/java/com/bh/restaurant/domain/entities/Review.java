@@ -4,23 +4,33 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
 import org.springframework.data.elasticsearch.annotations.DateFormat;
+import org.springframework.data.elasticsearch.annotations.Document;
 import org.springframework.data.elasticsearch.annotations.Field;
 import org.springframework.data.elasticsearch.annotations.FieldType;
+import org.springframework.data.elasticsearch.core.query.SeqNoPrimaryTerm;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
+// Reviews live in their own index so that writing one review doesn't rewrite the whole restaurant document.
+@Document(indexName = "reviews")
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
 public class Review {
 
-    @Field(type = FieldType.Keyword)
+    @Id
     private String id;
 
+    private SeqNoPrimaryTerm seqNoPrimaryTerm; // Not stored, makes save() a conditional write (optimistic concurrency control)
+
+    @Field(type = FieldType.Keyword)
+    private String restaurantId; // The restaurant this review belongs to
+
     @Field(type = FieldType.Text)
     private String content;
 
@@ -36,6 +46,7 @@ public class Review {
     @Field(type = FieldType.Nested)
     private List<Photo> photos = new ArrayList<>(); // to prevent null pointer exceptions.
 
-    @Field(type = FieldType.Nested)
+    // Object (not Nested) -> a single author per review, so writtenBy.id can be queried directly.
+    @Field(type = FieldType.Object)
     private User writtenBy;
 }
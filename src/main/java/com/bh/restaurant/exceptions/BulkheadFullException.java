@@ -0,0 +1,18 @@
+package com.bh.restaurant.exceptions;
+
+public class BulkheadFullException extends BaseException {
+    public BulkheadFullException() {
+    }
+
+    public BulkheadFullException(String message) {
+        super(message);
+    }
+
+    public BulkheadFullException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public BulkheadFullException(Throwable cause) {
+        super(cause);
+    }
+}
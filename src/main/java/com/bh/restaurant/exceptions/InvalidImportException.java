@@ -0,0 +1,18 @@
+package com.bh.restaurant.exceptions;
+
+public class InvalidImportException extends BaseException {
+    public InvalidImportException() {
+    }
+
+    public InvalidImportException(String message) {
+        super(message);
+    }
+
+    public InvalidImportException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public InvalidImportException(Throwable cause) {
+        super(cause);
+    }
+}
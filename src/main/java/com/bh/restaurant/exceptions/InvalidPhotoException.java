@@ -0,0 +1,18 @@
+package com.bh.restaurant.exceptions;
+
+public class InvalidPhotoException extends BaseException {
+    public InvalidPhotoException() {
+    }
+
+    public InvalidPhotoException(String message) {
+        super(message);
+    }
+
+    public InvalidPhotoException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public InvalidPhotoException(Throwable cause) {
+        super(cause);
+    }
+}
@@ -0,0 +1,18 @@
+package com.bh.restaurant.exceptions;
+
+public class PhotoTooLargeException extends BaseException {
+    public PhotoTooLargeException() {
+    }
+
+    public PhotoTooLargeException(String message) {
+        super(message);
+    }
+
+    public PhotoTooLargeException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public PhotoTooLargeException(Throwable cause) {
+        super(cause);
+    }
+}
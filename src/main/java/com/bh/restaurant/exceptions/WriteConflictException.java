@@ -0,0 +1,18 @@
+package com.bh.restaurant.exceptions;
+
+public class WriteConflictException extends BaseException {
+    public WriteConflictException() {
+    }
+
+    public WriteConflictException(String message) {
+        super(message);
+    }
+
+    public WriteConflictException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public WriteConflictException(Throwable cause) {
+        super(cause);
+    }
+}
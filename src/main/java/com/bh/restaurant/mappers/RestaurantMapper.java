@@ -1,34 +1,66 @@
 package com.bh.restaurant.mappers;
 
 import com.bh.restaurant.domain.RestaurantCreateUpdateRequest;
+import com.bh.restaurant.domain.RestaurantImportResult;
+import com.bh.restaurant.domain.RestaurantSearchResult;
 import com.bh.restaurant.domain.dtos.GeoPointDto;
 import com.bh.restaurant.domain.dtos.RestaurantCreateUpdateRequestDto;
 import com.bh.restaurant.domain.dtos.RestaurantDto;
+import com.bh.restaurant.domain.dtos.RestaurantImportResultDto;
+import com.bh.restaurant.domain.dtos.RestaurantSuggestionDto;
 import com.bh.restaurant.domain.dtos.RestaurantSummaryDto;
 import com.bh.restaurant.domain.entities.Restaurant;
-import com.bh.restaurant.domain.entities.Review;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.Named;
 import org.mapstruct.ReportingPolicy;
 import org.springframework.data.elasticsearch.core.geo.GeoPoint;
 
-import java.util.List;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 @Mapper(componentModel = "spring", unmappedTargetPolicy = ReportingPolicy.IGNORE)
 public interface RestaurantMapper {
 
     RestaurantCreateUpdateRequest toRestaurantCreateUpdateRequest(RestaurantCreateUpdateRequestDto dto);
 
-    @Mapping(source = "reviews", target = "totalReviews", qualifiedByName = "populateTotalReviews")
+    RestaurantImportResultDto toImportResultDto(RestaurantImportResult result);
+
+    @Mapping(source = "restaurant", target = "averageRating", qualifiedByName = "populateAverageRating")
+    @Mapping(source = "reviewCount", target = "totalReviews", defaultValue = "0")
+    @Mapping(source = "ratingHistogram", target = "ratingHistogram", qualifiedByName = "populateRatingHistogram")
     RestaurantDto toRestaurantDto(Restaurant restaurant);
 
-    @Mapping(source = "reviews", target = "totalReviews", qualifiedByName = "populateTotalReviews")
+    @Mapping(source = "restaurant", target = "averageRating", qualifiedByName = "populateAverageRating")
+    @Mapping(source = "reviewCount", target = "totalReviews", defaultValue = "0")
     RestaurantSummaryDto toSummaryDto(Restaurant restaurant);
 
-    @Named("populateTotalReviews")
-    default Integer populateTotalReviews(List<Review> reviews) {
-        return reviews.size();
+    RestaurantSuggestionDto toSuggestionDto(Restaurant restaurant);
+
+    default RestaurantSummaryDto toSummaryDto(RestaurantSearchResult searchResult) {
+        RestaurantSummaryDto summaryDto = toSummaryDto(searchResult.getRestaurant());
+        summaryDto.setDistanceKm(searchResult.getDistanceKm());
+        return summaryDto;
+    }
+
+    // Average rating is derived from the incrementally maintained sum and count
+    @Named("populateAverageRating")
+    default Float populateAverageRating(Restaurant restaurant) {
+        if (restaurant.getRatingSum() == null || restaurant.getReviewCount() == null || restaurant.getReviewCount() == 0) {
+            return 0f;
+        }
+        return (float) restaurant.getRatingSum() / restaurant.getReviewCount();
+    }
+
+    // Always return all five stars in order, with zero for stars nobody has given yet
+    @Named("populateRatingHistogram")
+    default Map<String, Integer> populateRatingHistogram(Map<String, Integer> ratingHistogram) {
+        Map<String, Integer> histogram = new LinkedHashMap<>();
+        for (int star = 1; star <= 5; star++) {
+            String key = String.valueOf(star);
+            histogram.put(key, ratingHistogram == null ? 0 : ratingHistogram.getOrDefault(key, 0));
+        }
+        return histogram;
     }
 
     @Mapping(target = "latitude", expression = "java(geoPoint.getLat())")
@@ -1,7 +1,9 @@
 package com.bh.restaurant.mappers;
 
 import com.bh.restaurant.domain.ReviewCreateUpdateRequest;
+import com.bh.restaurant.domain.ReviewCursorPage;
 import com.bh.restaurant.domain.dtos.ReviewCreateUpdateRequestDto;
+import com.bh.restaurant.domain.dtos.ReviewCursorPageDto;
 import com.bh.restaurant.domain.dtos.ReviewDto;
 import com.bh.restaurant.domain.entities.Review;
 import org.mapstruct.Mapper;
@@ -12,4 +14,5 @@ import org.mapstruct.ReportingPolicy;
 public interface ReviewMapper {
     ReviewCreateUpdateRequest toReviewCreateUpdateRequest(ReviewCreateUpdateRequestDto dto);
     ReviewDto toDto(Review review);
+    ReviewCursorPageDto toCursorPageDto(ReviewCursorPage page);
 }
@@ -0,0 +1,22 @@
+package com.bh.restaurant.repositories;
+
+import com.bh.restaurant.domain.entities.Restaurant;
+
+import java.util.List;
+import java.util.Map;
+
+public interface RestaurantBulkRepository {
+    // Indexes the restaurants (ids must be set) through the _bulk API, in requests of at most
+    // maxRequestBytes of document source. Returns the error message of every failed restaurant by id;
+    // a request that fails as a whole fails all of its restaurants, the other requests are still sent.
+    Map<String, String> bulkIndex(List<Restaurant> restaurants, long maxRequestBytes);
+
+    // Sets geoLocation and geoLocationPending of the restaurants with partial updates in one _bulk request.
+    // Each update is conditional on the restaurant's seqNoPrimaryTerm, so it fails instead of applying
+    // a location to a restaurant that changed since it was read. Returns the error message of every
+    // failed restaurant by id.
+    Map<String, String> bulkUpdateGeoLocations(List<Restaurant> restaurants);
+
+    // Makes bulk indexed restaurants visible to searches
+    void refresh();
+}
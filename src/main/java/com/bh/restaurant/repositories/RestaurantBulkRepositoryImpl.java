@@ -0,0 +1,107 @@
+package com.bh.restaurant.repositories;
+
+import com.bh.restaurant.domain.entities.Restaurant;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.elasticsearch.BulkFailureException;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.document.Document;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.data.elasticsearch.core.query.IndexQuery;
+import org.springframework.data.elasticsearch.core.query.IndexQueryBuilder;
+import org.springframework.data.elasticsearch.core.query.SeqNoPrimaryTerm;
+import org.springframework.data.elasticsearch.core.query.UpdateQuery;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RequiredArgsConstructor
+@Slf4j
+public class RestaurantBulkRepositoryImpl implements RestaurantBulkRepository {
+
+    private final ElasticsearchOperations elasticsearchOperations;
+
+    @Override
+    public Map<String, String> bulkIndex(List<Restaurant> restaurants, long maxRequestBytes) {
+        IndexCoordinates index = elasticsearchOperations.getIndexCoordinatesFor(Restaurant.class);
+        Map<String, String> failures = new HashMap<>();
+
+        List<IndexQuery> batch = new ArrayList<>();
+        long batchBytes = 0;
+        for (Restaurant restaurant : restaurants) {
+            // Serialized here rather than by bulkIndex, so the request size is known upfront
+            String source = elasticsearchOperations.getElasticsearchConverter().mapObject(restaurant).toJson();
+            long sourceBytes = source.getBytes(StandardCharsets.UTF_8).length;
+
+            if (!batch.isEmpty() && batchBytes + sourceBytes > maxRequestBytes) {
+                send(batch, index, failures);
+                batch.clear();
+                batchBytes = 0;
+            }
+            batch.add(new IndexQueryBuilder()
+                    .withId(restaurant.getId())
+                    .withSource(source)
+                    .build());
+            batchBytes += sourceBytes;
+        }
+        if (!batch.isEmpty()) {
+            send(batch, index, failures);
+        }
+        return failures;
+    }
+
+    @Override
+    public Map<String, String> bulkUpdateGeoLocations(List<Restaurant> restaurants) {
+        Map<String, String> failures = new HashMap<>();
+        if (restaurants.isEmpty()) {
+            return failures;
+        }
+
+        List<UpdateQuery> updates = new ArrayList<>(restaurants.size());
+        for (Restaurant restaurant : restaurants) {
+            // Only these two fields are sent, the rest of the document is left as it is
+            Document document = Document.create();
+            document.put("geoLocation", Map.of(
+                    "lat", restaurant.getGeoLocation().getLat(),
+                    "lon", restaurant.getGeoLocation().getLon()));
+            document.put("geoLocationPending", restaurant.getGeoLocationPending());
+
+            UpdateQuery.Builder update = UpdateQuery.builder(restaurant.getId()).withDocument(document);
+            SeqNoPrimaryTerm version = restaurant.getSeqNoPrimaryTerm();
+            if (version != null) {
+                update.withIfSeqNo(Math.toIntExact(version.sequenceNumber()))
+                        .withIfPrimaryTerm(Math.toIntExact(version.primaryTerm()));
+            }
+            updates.add(update.build());
+        }
+
+        try {
+            elasticsearchOperations.bulkUpdate(updates, elasticsearchOperations.getIndexCoordinatesFor(Restaurant.class));
+        } catch (BulkFailureException e) {
+            e.getFailedDocuments().forEach((id, details) -> failures.put(id, details.errorMessage()));
+        }
+        return failures;
+    }
+
+    @Override
+    public void refresh() {
+        elasticsearchOperations.indexOps(Restaurant.class).refresh();
+    }
+
+    private void send(List<IndexQuery> batch, IndexCoordinates index, Map<String, String> failures) {
+        try {
+            elasticsearchOperations.bulkIndex(batch, index);
+        } catch (BulkFailureException e) {
+            // Only the failed items are reported, the rest of the request was indexed
+            e.getFailedDocuments().forEach((id, details) -> failures.put(id, details.errorMessage()));
+        } catch (RuntimeException e) {
+            // The whole request failed, e.g. a timeout: its items are reported and the next requests
+            // are still sent. After a timeout some of them may have been indexed nevertheless.
+            log.warn("Bulk request of {} documents failed", batch.size(), e);
+            batch.forEach(query -> failures.put(query.getId(), e.getMessage()));
+        }
+    }
+}
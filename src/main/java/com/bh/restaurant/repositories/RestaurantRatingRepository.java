@@ -0,0 +1,14 @@
+package com.bh.restaurant.repositories;
+
+import com.bh.restaurant.domain.entities.Restaurant;
+
+public interface RestaurantRatingRepository {
+    // Adjusts the rating aggregates of a restaurant in place, without fetching the document.
+    // addedRating / removedRating are null when no rating is added / removed.
+    void applyRatingChange(String restaurantId, Integer addedRating, Integer removedRating);
+
+    // Overwrites averageRating, ratingSum, reviewCount and ratingHistogram with the values of the given
+    // restaurant, conditional on its seqNoPrimaryTerm. Returns false when the restaurant changed
+    // since it was read. Used by RatingAggregateReconciler.
+    boolean replaceRatingAggregates(Restaurant restaurant);
+}
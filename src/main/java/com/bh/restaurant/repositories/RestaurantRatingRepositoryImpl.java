@@ -0,0 +1,97 @@
+package com.bh.restaurant.repositories;
+
+import com.bh.restaurant.domain.entities.Restaurant;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.query.SeqNoPrimaryTerm;
+import org.springframework.data.elasticsearch.core.query.UpdateQuery;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@RequiredArgsConstructor
+public class RestaurantRatingRepositoryImpl implements RestaurantRatingRepository {
+
+    // Painless script that runs on the Elasticsearch node.
+    // It applies the deltas to ratingSum, reviewCount and the per-star histogram,
+    // then derives averageRating from them.
+    private static final String RATING_CHANGE_SCRIPT =
+            "long sum = ctx._source.ratingSum == null ? 0 : ctx._source.ratingSum;" +
+            "long count = ctx._source.reviewCount == null ? 0 : ctx._source.reviewCount;" +
+            "if (ctx._source.ratingHistogram == null) { ctx._source.ratingHistogram = new HashMap(); }" +
+            "Map histogram = ctx._source.ratingHistogram;" +
+            "if (params.removedRating != null) {" +
+            "  String star = String.valueOf(params.removedRating);" +
+            "  sum -= params.removedRating; count -= 1;" +
+            "  histogram[star] = Math.max(0, (int) histogram.getOrDefault(star, 0) - 1);" +
+            "}" +
+            "if (params.addedRating != null) {" +
+            "  String star = String.valueOf(params.addedRating);" +
+            "  sum += params.addedRating; count += 1;" +
+            "  histogram[star] = (int) histogram.getOrDefault(star, 0) + 1;" +
+            "}" +
+            "count = Math.max(0, count);" +
+            "ctx._source.ratingSum = sum;" +
+            "ctx._source.reviewCount = count;" +
+            "ctx._source.averageRating = count == 0 ? 0.0 : (double) sum / count;";
+
+    // Sets the aggregates as computed by the caller. A partial document update would merge the
+    // histogram with the stored one and keep stars that are no longer in it, so it is replaced here.
+    private static final String REPLACE_AGGREGATES_SCRIPT =
+            "ctx._source.averageRating = params.averageRating;" +
+            "ctx._source.ratingSum = params.ratingSum;" +
+            "ctx._source.reviewCount = params.reviewCount;" +
+            "ctx._source.ratingHistogram = params.ratingHistogram;";
+
+    // Elasticsearch re-runs the script itself when a concurrent write bumped the document in between
+    private static final int RETRY_ON_CONFLICT = 5;
+
+    private final ElasticsearchOperations elasticsearchOperations;
+
+    @Override
+    public void applyRatingChange(String restaurantId, Integer addedRating, Integer removedRating) {
+        // Map.of doesn't accept null values
+        Map<String, Object> params = new HashMap<>();
+        params.put("addedRating", addedRating);
+        params.put("removedRating", removedRating);
+
+        UpdateQuery updateQuery = UpdateQuery.builder(restaurantId)
+                .withScript(RATING_CHANGE_SCRIPT)
+                .withLang("painless")
+                .withParams(params)
+                .withRetryOnConflict(RETRY_ON_CONFLICT)
+                .build();
+
+        elasticsearchOperations.update(
+                updateQuery,
+                elasticsearchOperations.getIndexCoordinatesFor(Restaurant.class));
+    }
+
+    @Override
+    public boolean replaceRatingAggregates(Restaurant restaurant) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("averageRating", restaurant.getAverageRating());
+        params.put("ratingSum", restaurant.getRatingSum());
+        params.put("reviewCount", restaurant.getReviewCount());
+        params.put("ratingHistogram", restaurant.getRatingHistogram());
+
+        SeqNoPrimaryTerm version = restaurant.getSeqNoPrimaryTerm();
+        UpdateQuery updateQuery = UpdateQuery.builder(restaurant.getId())
+                .withScript(REPLACE_AGGREGATES_SCRIPT)
+                .withLang("painless")
+                .withParams(params)
+                .withIfSeqNo(Math.toIntExact(version.sequenceNumber()))
+                .withIfPrimaryTerm(Math.toIntExact(version.primaryTerm()))
+                .build();
+
+        try {
+            elasticsearchOperations.update(
+                    updateQuery,
+                    elasticsearchOperations.getIndexCoordinatesFor(Restaurant.class));
+            return true;
+        } catch (OptimisticLockingFailureException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.bh.restaurant.repositories;
+
+import com.bh.restaurant.domain.RestaurantSearchCriteria;
+import com.bh.restaurant.domain.RestaurantSearchResult;
+import com.bh.restaurant.domain.entities.Restaurant;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+public interface RestaurantSearchRepository {
+    // Runs a single query combining every supplied criterion (text, minimum rating, radius),
+    // sorted by distance when a location is given. Only summary fields are fetched.
+    Page<RestaurantSearchResult> search(RestaurantSearchCriteria criteria, Pageable pageable);
+
+    // Typeahead: restaurants whose name or cuisine type contains all words of the input, the last one
+    // as a prefix, best matches first. Only id, name and cuisineType are populated.
+    List<Restaurant> suggest(String prefix, int size);
+
+    // Streams the summary fields and location of every restaurant (scroll), e.g. to build an in-memory index
+    // Holds one Elasticsearch bulkhead permit until the whole scroll is consumed
+    void forEachSummary(Consumer<Restaurant> consumer);
+}
@@ -0,0 +1,146 @@
+package com.bh.restaurant.repositories;
+
+import co.elastic.clients.elasticsearch._types.DistanceUnit;
+import co.elastic.clients.elasticsearch._types.GeoLocation;
+import co.elastic.clients.elasticsearch._types.SortOrder;
+import co.elastic.clients.elasticsearch._types.query_dsl.BoolQuery;
+import co.elastic.clients.elasticsearch._types.query_dsl.Operator;
+import co.elastic.clients.elasticsearch._types.query_dsl.TextQueryType;
+import com.bh.restaurant.domain.RestaurantSearchCriteria;
+import com.bh.restaurant.domain.RestaurantSearchResult;
+import com.bh.restaurant.domain.entities.Restaurant;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.elasticsearch.client.elc.NativeQuery;
+import org.springframework.data.elasticsearch.client.elc.NativeQueryBuilder;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.elasticsearch.core.SearchHitSupport;
+import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.data.elasticsearch.core.SearchHitsIterator;
+import org.springframework.data.elasticsearch.core.query.FetchSourceFilter;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+@RequiredArgsConstructor
+public class RestaurantSearchRepositoryImpl implements RestaurantSearchRepository {
+
+    // Only the fields needed for RestaurantSummaryDto are fetched (_source filtering)
+    static final String[] SUMMARY_FIELDS = {
+            "name", "cuisineType", "averageRating", "ratingSum", "reviewCount", "address", "photos"
+    };
+
+    static final String[] SUMMARY_AND_LOCATION_FIELDS = {
+            "name", "cuisineType", "averageRating", "ratingSum", "reviewCount", "address", "photos", "geoLocation"
+    };
+
+    static final String[] SUGGESTION_FIELDS = {"name", "cuisineType"};
+
+    // The search_as_you_type subfield and its shingle subfields, see Restaurant
+    private static final List<String> SUGGEST_FIELDS = List.of(
+            "name.suggest", "name.suggest._2gram", "name.suggest._3gram",
+            "cuisineType.suggest", "cuisineType.suggest._2gram", "cuisineType.suggest._3gram");
+
+    private static final int SCROLL_BATCH_SIZE = 1000;
+
+    private final ElasticsearchOperations elasticsearchOperations;
+
+    @Override
+    public Page<RestaurantSearchResult> search(RestaurantSearchCriteria criteria, Pageable pageable) {
+        BoolQuery.Builder bool = new BoolQuery.Builder();
+
+        // Text relevance is the only scored part of the query
+        if (criteria.hasQuery()) {
+            bool.must(must -> must.multiMatch(match -> match
+                    .query(criteria.getQuery().trim())
+                    .fields("name", "cuisineType")
+                    .fuzziness("AUTO")));
+        }
+
+        // Everything else goes into the filter context: not scored, and cached by Elasticsearch
+        if (criteria.getMinRating() != null) {
+            bool.filter(filter -> filter.range(range -> range.number(number -> number
+                    .field("averageRating")
+                    .gte(criteria.getMinRating().doubleValue()))));
+        }
+        if (criteria.hasRadius()) {
+            bool.filter(filter -> filter.geoDistance(geo -> geo
+                    .field("geoLocation")
+                    .location(origin(criteria))
+                    .distance(criteria.getRadiusKm() + "km")));
+        }
+
+        // A bool query without any clause matches all restaurants
+        NativeQueryBuilder queryBuilder = NativeQuery.builder()
+                .withQuery(query -> query.bool(bool.build()))
+                .withPageable(pageable)
+                .withSourceFilter(new FetchSourceFilter(SUMMARY_FIELDS, null));
+
+        // Nearest first, the sort value is the distance in km
+        if (criteria.hasLocation()) {
+            queryBuilder.withSort(sort -> sort.geoDistance(geo -> geo
+                    .field("geoLocation")
+                    .location(origin(criteria))
+                    .order(SortOrder.Asc)
+                    .unit(DistanceUnit.Kilometers)));
+        }
+
+        SearchHits<Restaurant> searchHits = elasticsearchOperations.search(queryBuilder.build(), Restaurant.class);
+
+        return SearchHitSupport.searchPageFor(searchHits, pageable).map(hit -> RestaurantSearchResult.builder()
+                .restaurant(hit.getContent())
+                .distanceKm(criteria.hasLocation() ? distanceKm(hit.getSortValues().getFirst()) : null)
+                .build());
+    }
+
+    // Restaurants without a location (e.g. still waiting for geocoding) sort last with an infinite
+    // distance, which can come back as the string "Infinity": they have no distance
+    private static Double distanceKm(Object sortValue) {
+        if (sortValue instanceof Number distance && Double.isFinite(distance.doubleValue())) {
+            return distance.doubleValue();
+        }
+        return null;
+    }
+
+    @Override
+    public List<Restaurant> suggest(String prefix, int size) {
+        // bool_prefix: every word is a term query except the last one, which is a prefix query.
+        // All words have to match, in name or in cuisine type.
+        NativeQuery query = NativeQuery.builder()
+                .withQuery(q -> q.multiMatch(match -> match
+                        .query(prefix)
+                        .type(TextQueryType.BoolPrefix)
+                        .operator(Operator.And)
+                        .fields(SUGGEST_FIELDS)))
+                .withPageable(PageRequest.of(0, size))
+                .withSourceFilter(new FetchSourceFilter(SUGGESTION_FIELDS, null))
+                .withTrackTotalHits(false)
+                .build();
+
+        return elasticsearchOperations.search(query, Restaurant.class).stream()
+                .map(SearchHit::getContent)
+                .toList();
+    }
+
+    @Override
+    public void forEachSummary(Consumer<Restaurant> consumer) {
+        NativeQuery query = NativeQuery.builder()
+                .withQuery(q -> q.matchAll(all -> all))
+                .withPageable(PageRequest.of(0, SCROLL_BATCH_SIZE)) // documents per scroll round trip
+                .withSourceFilter(new FetchSourceFilter(SUMMARY_AND_LOCATION_FIELDS, null))
+                .build();
+
+        try (SearchHitsIterator<Restaurant> hits = elasticsearchOperations.searchForStream(query, Restaurant.class)) {
+            hits.forEachRemaining(hit -> consumer.accept(hit.getContent()));
+        }
+    }
+
+    private static GeoLocation origin(RestaurantSearchCriteria criteria) {
+        return GeoLocation.of(location -> location.latlon(latLon -> latLon
+                .lat(criteria.getLatitude())
+                .lon(criteria.getLongitude())));
+    }
+}
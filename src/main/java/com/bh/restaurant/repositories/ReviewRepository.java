@@ -0,0 +1,19 @@
+package com.bh.restaurant.repositories;
+
+import com.bh.restaurant.domain.entities.Review;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.elasticsearch.repository.ElasticsearchRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ReviewRepository extends ElasticsearchRepository<Review, String>, ReviewWriteRepository, ReviewSearchRepository {
+    // Pages through the reviews of a restaurant, sorted and paginated by Elasticsearch
+    Page<Review> findByRestaurantId(String restaurantId, Pageable pageable);
+
+    // Checks whether the given user has already reviewed the restaurant
+    boolean existsByRestaurantIdAndWrittenById(String restaurantId, String userId);
+
+    // Removes all reviews of a restaurant
+    void deleteByRestaurantId(String restaurantId);
+}
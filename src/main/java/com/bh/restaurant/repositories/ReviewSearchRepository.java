@@ -0,0 +1,18 @@
+package com.bh.restaurant.repositories;
+
+import com.bh.restaurant.domain.entities.Review;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.elasticsearch.core.SearchHits;
+
+import java.util.List;
+import java.util.Map;
+
+public interface ReviewSearchRepository {
+    // Keyset pagination: returns the next reviews after the given sort values (search_after).
+    // Pass null searchAfter for the first page. The sort must end with a unique tie-breaker.
+    SearchHits<Review> findByRestaurantIdAfter(String restaurantId, Sort sort, List<Object> searchAfter, int size);
+
+    // Number of reviews by restaurant id and rating, over the whole index. Restaurants without
+    // reviews are missing. Used by RatingAggregateReconciler.
+    Map<String, Map<Integer, Long>> countByRestaurantIdAndRating();
+}
@@ -0,0 +1,80 @@
+package com.bh.restaurant.repositories;
+
+import co.elastic.clients.elasticsearch._types.FieldValue;
+import co.elastic.clients.elasticsearch._types.aggregations.Aggregation;
+import co.elastic.clients.elasticsearch._types.aggregations.CompositeAggregate;
+import co.elastic.clients.elasticsearch._types.aggregations.CompositeAggregationSource;
+import co.elastic.clients.elasticsearch._types.aggregations.CompositeBucket;
+import com.bh.restaurant.domain.entities.Review;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.elasticsearch.client.elc.ElasticsearchAggregations;
+import org.springframework.data.elasticsearch.client.elc.NativeQuery;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.SearchHits;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RequiredArgsConstructor
+public class ReviewSearchRepositoryImpl implements ReviewSearchRepository {
+
+    // Buckets (restaurant and rating pairs) per composite aggregation request
+    private static final int COMPOSITE_PAGE_SIZE = 10_000;
+
+    private final ElasticsearchOperations elasticsearchOperations;
+
+    @Override
+    public SearchHits<Review> findByRestaurantIdAfter(String restaurantId, Sort sort, List<Object> searchAfter, int size) {
+        NativeQuery query = NativeQuery.builder()
+                // Filter context of the query, so only this restaurant's reviews are sorted and scanned
+                .withQuery(q -> q.bool(bool -> bool
+                        .filter(filter -> filter.term(term -> term.field("restaurantId").value(restaurantId)))))
+                .withSort(sort)
+                .withPageable(PageRequest.of(0, size)) // search_after always starts at offset 0
+                .withSearchAfter(searchAfter)
+                .withTrackTotalHits(false) // no need to count every review for a cursor page
+                .build();
+
+        return elasticsearchOperations.search(query, Review.class);
+    }
+
+    @Override
+    public Map<String, Map<Integer, Long>> countByRestaurantIdAndRating() {
+        Map<String, Map<Integer, Long>> counts = new HashMap<>();
+        Map<String, FieldValue> afterKey = null;
+        do {
+            Map<String, FieldValue> after = afterKey;
+            // Composite aggregation: every (restaurantId, rating) pair, paged with after_key
+            Aggregation ratings = Aggregation.of(aggregation -> aggregation.composite(composite -> {
+                composite.size(COMPOSITE_PAGE_SIZE).sources(List.of(
+                        Map.of("restaurantId", CompositeAggregationSource.of(source -> source
+                                .terms(terms -> terms.field("restaurantId")))),
+                        Map.of("rating", CompositeAggregationSource.of(source -> source
+                                .terms(terms -> terms.field("rating"))))));
+                if (after != null) {
+                    composite.after(after);
+                }
+                return composite;
+            }));
+            NativeQuery query = NativeQuery.builder()
+                    .withAggregation("ratings", ratings)
+                    .withMaxResults(0) // only the buckets are needed
+                    .withTrackTotalHits(false)
+                    .build();
+
+            ElasticsearchAggregations aggregations = (ElasticsearchAggregations) elasticsearchOperations
+                    .search(query, Review.class)
+                    .getAggregations();
+            CompositeAggregate page = aggregations.get("ratings").aggregation().getAggregate().composite();
+            for (CompositeBucket bucket : page.buckets().array()) {
+                counts.computeIfAbsent(bucket.key().get("restaurantId").stringValue(), key -> new HashMap<>())
+                        .put((int) bucket.key().get("rating").longValue(), bucket.docCount());
+            }
+            afterKey = page.buckets().array().isEmpty() || page.afterKey().isEmpty() ? null : page.afterKey();
+        } while (afterKey != null);
+        return counts;
+    }
+}
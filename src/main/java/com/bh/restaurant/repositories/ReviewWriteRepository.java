@@ -0,0 +1,13 @@
+package com.bh.restaurant.repositories;
+
+import com.bh.restaurant.domain.entities.Review;
+
+public interface ReviewWriteRepository {
+    // Indexes the review only if no review with the same id exists yet.
+    // Returns false if it already exists.
+    boolean createIfAbsent(Review review);
+
+    // Deletes the review only if it hasn't changed since it was read (seq_no / primary_term).
+    // Throws OptimisticLockingFailureException if it was changed or deleted in the meantime.
+    void deleteIfUnchanged(Review review);
+}
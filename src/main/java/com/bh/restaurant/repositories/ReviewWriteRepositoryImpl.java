@@ -0,0 +1,68 @@
+package com.bh.restaurant.repositories;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch._types.Refresh;
+import com.bh.restaurant.domain.entities.Review;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.elasticsearch.UncategorizedElasticsearchException;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.RefreshPolicy;
+import org.springframework.data.elasticsearch.core.query.IndexQuery;
+import org.springframework.data.elasticsearch.core.query.IndexQueryBuilder;
+import org.springframework.data.elasticsearch.core.query.SeqNoPrimaryTerm;
+
+import java.io.IOException;
+
+@RequiredArgsConstructor
+public class ReviewWriteRepositoryImpl implements ReviewWriteRepository {
+
+    private static final int CONFLICT = 409;
+
+    private final ElasticsearchOperations elasticsearchOperations;
+    private final ElasticsearchClient elasticsearchClient;
+
+    @Override
+    public boolean createIfAbsent(Review review) {
+        IndexQuery indexQuery = new IndexQueryBuilder()
+                .withId(review.getId())
+                .withObject(review)
+                .withOpType(IndexQuery.OpType.CREATE) // fails with a conflict if the id is taken
+                .build();
+        try {
+            elasticsearchOperations
+                    .withRefreshPolicy(RefreshPolicy.WAIT_UNTIL)
+                    .index(indexQuery, elasticsearchOperations.getIndexCoordinatesFor(Review.class));
+            return true;
+        } catch (UncategorizedElasticsearchException ex) {
+            if (Integer.valueOf(CONFLICT).equals(ex.getStatusCode())) {
+                return false;
+            }
+            throw ex;
+        }
+    }
+
+    @Override
+    public void deleteIfUnchanged(Review review) {
+        // Spring Data's delete doesn't support conditional deletes, so use the client directly
+        SeqNoPrimaryTerm seqNoPrimaryTerm = review.getSeqNoPrimaryTerm();
+        String indexName = elasticsearchOperations.getIndexCoordinatesFor(Review.class).getIndexName();
+        try {
+            elasticsearchClient.delete(delete -> delete
+                    .index(indexName)
+                    .id(review.getId())
+                    .ifSeqNo(seqNoPrimaryTerm.sequenceNumber())
+                    .ifPrimaryTerm(seqNoPrimaryTerm.primaryTerm())
+                    .refresh(Refresh.WaitFor));
+        } catch (ElasticsearchException ex) {
+            if (ex.status() == CONFLICT) {
+                throw new OptimisticLockingFailureException("Review was changed concurrently: " + review.getId(), ex);
+            }
+            throw ex;
+        } catch (IOException ex) {
+            throw new DataAccessResourceFailureException("Could not delete review: " + review.getId(), ex);
+        }
+    }
+}
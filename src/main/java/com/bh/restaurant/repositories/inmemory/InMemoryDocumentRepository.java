@@ -0,0 +1,233 @@
+package com.bh.restaurant.repositories.inmemory;
+
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.elasticsearch.core.RefreshPolicy;
+import org.springframework.data.elasticsearch.core.query.SeqNoPrimaryTerm;
+import org.springframework.data.elasticsearch.repository.ElasticsearchRepository;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Base of the repositories of the "in-memory" profile, with the ElasticsearchRepository semantics
+// the services rely on:
+// - documents are stored and returned as copies, so changing a returned document has no effect until it is saved
+// - every write assigns a new sequence number; saving a document that carries the SeqNoPrimaryTerm
+//   of an older version fails with OptimisticLockingFailureException
+// - writes are visible to reads immediately, as if every request used RefreshPolicy.IMMEDIATE
+// Writes and the secondary indexes of subclasses are guarded by one read-write lock,
+// single-document reads go straight to the map.
+abstract class InMemoryDocumentRepository<T> implements ElasticsearchRepository<T, String> {
+
+    private static final long PRIMARY_TERM = 1;
+
+    protected final Map<String, T> documents = new ConcurrentHashMap<>();
+    protected final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicLong sequenceNumbers = new AtomicLong();
+
+    protected abstract String idOf(T document);
+
+    protected abstract void setId(T document, String id);
+
+    protected abstract SeqNoPrimaryTerm versionOf(T document);
+
+    protected abstract void setVersion(T document, SeqNoPrimaryTerm version);
+
+    protected abstract T copy(T document);
+
+    // Updates the secondary indexes, called with the write lock held. previous is null for a new
+    // document, current is null for a deleted one.
+    protected abstract void reindex(T previous, T current);
+
+    // Stores a copy of the document as a new version, called with the write lock held
+    protected T store(T document) {
+        T previous = documents.get(idOf(document));
+        T stored = copy(document);
+        setVersion(stored, new SeqNoPrimaryTerm(sequenceNumbers.incrementAndGet(), PRIMARY_TERM));
+        documents.put(idOf(stored), stored);
+        reindex(previous, stored);
+        return stored;
+    }
+
+    // Whether a conditional write carrying the document's version may replace the stored document
+    protected boolean isCurrentVersion(T document) {
+        SeqNoPrimaryTerm expected = versionOf(document);
+        if (expected == null) {
+            return true;
+        }
+        T current = documents.get(idOf(document));
+        return current != null && expected.equals(versionOf(current));
+    }
+
+    @Override
+    public <S extends T> S save(S entity) {
+        lock.writeLock().lock();
+        try {
+            if (idOf(entity) == null) {
+                setId(entity, UUID.randomUUID().toString());
+            }
+            if (!isCurrentVersion(entity)) {
+                throw new OptimisticLockingFailureException("Document was changed concurrently: " + idOf(entity));
+            }
+            // Like Spring Data Elasticsearch, the saved entity gets the new version
+            setVersion(entity, versionOf(store(entity)));
+            return entity;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public <S extends T> S save(S entity, RefreshPolicy refreshPolicy) {
+        return save(entity);
+    }
+
+    @Override
+    public <S extends T> Iterable<S> saveAll(Iterable<S> entities) {
+        List<S> saved = new ArrayList<>();
+        entities.forEach(entity -> saved.add(save(entity)));
+        return saved;
+    }
+
+    @Override
+    public <S extends T> Iterable<S> saveAll(Iterable<S> entities, RefreshPolicy refreshPolicy) {
+        return saveAll(entities);
+    }
+
+    @Override
+    public Optional<T> findById(String id) {
+        return Optional.ofNullable(documents.get(id)).map(this::copy);
+    }
+
+    @Override
+    public boolean existsById(String id) {
+        return documents.containsKey(id);
+    }
+
+    @Override
+    public Iterable<T> findAll() {
+        return documents.values().stream().map(this::copy).toList();
+    }
+
+    @Override
+    public Iterable<T> findAll(Sort sort) {
+        return documents.values().stream().sorted(comparator(sort)).map(this::copy).toList();
+    }
+
+    @Override
+    public Page<T> findAll(Pageable pageable) {
+        return page(documents.values().stream().sorted(comparator(pageable.getSort())).toList(), pageable);
+    }
+
+    @Override
+    public Iterable<T> findAllById(Iterable<String> ids) {
+        List<T> found = new ArrayList<>();
+        ids.forEach(id -> findById(id).ifPresent(found::add));
+        return found;
+    }
+
+    @Override
+    public long count() {
+        return documents.size();
+    }
+
+    @Override
+    public void deleteById(String id) {
+        lock.writeLock().lock();
+        try {
+            T previous = documents.remove(id);
+            if (previous != null) {
+                reindex(previous, null);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void deleteById(String id, RefreshPolicy refreshPolicy) {
+        deleteById(id);
+    }
+
+    @Override
+    public void delete(T entity) {
+        deleteById(idOf(entity));
+    }
+
+    @Override
+    public void delete(T entity, RefreshPolicy refreshPolicy) {
+        delete(entity);
+    }
+
+    @Override
+    public void deleteAllById(Iterable<? extends String> ids) {
+        ids.forEach(this::deleteById);
+    }
+
+    @Override
+    public void deleteAllById(Iterable<? extends String> ids, RefreshPolicy refreshPolicy) {
+        deleteAllById(ids);
+    }
+
+    @Override
+    public void deleteAll(Iterable<? extends T> entities) {
+        entities.forEach(this::delete);
+    }
+
+    @Override
+    public void deleteAll(Iterable<? extends T> entities, RefreshPolicy refreshPolicy) {
+        deleteAll(entities);
+    }
+
+    @Override
+    public void deleteAll() {
+        deleteAllById(List.copyOf(documents.keySet()));
+    }
+
+    @Override
+    public void deleteAll(RefreshPolicy refreshPolicy) {
+        deleteAll();
+    }
+
+    @Override
+    public Page<T> searchSimilar(T entity, String[] fields, Pageable pageable) {
+        throw new UnsupportedOperationException("more_like_this queries are not supported in memory");
+    }
+
+    // Copies of the requested page of already filtered and sorted documents
+    protected Page<T> page(List<T> sorted, Pageable pageable) {
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(sorted.stream().map(this::copy).toList());
+        }
+        int from = (int) Math.min(pageable.getOffset(), sorted.size());
+        int to = Math.min(from + pageable.getPageSize(), sorted.size());
+        return new PageImpl<>(sorted.subList(from, to).stream().map(this::copy).toList(), pageable, sorted.size());
+    }
+
+    // Sorts by bean properties, documents without a value come last as in Elasticsearch
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    protected Comparator<T> comparator(Sort sort) {
+        Comparator<T> comparator = (first, second) -> 0;
+        for (Sort.Order order : sort) {
+            Comparator<Comparable> values = order.isAscending()
+                    ? Comparator.naturalOrder()
+                    : Comparator.reverseOrder();
+            comparator = comparator.thenComparing(
+                    document -> (Comparable) new BeanWrapperImpl(document).getPropertyValue(order.getProperty()),
+                    Comparator.nullsLast(values));
+        }
+        return comparator;
+    }
+}
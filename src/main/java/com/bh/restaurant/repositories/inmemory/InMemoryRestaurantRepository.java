@@ -0,0 +1,496 @@
+package com.bh.restaurant.repositories.inmemory;
+
+import com.bh.restaurant.domain.RestaurantSearchCriteria;
+import com.bh.restaurant.domain.RestaurantSearchResult;
+import com.bh.restaurant.domain.entities.Restaurant;
+import com.bh.restaurant.repositories.RestaurantRepository;
+import com.bh.restaurant.support.GeoGrid;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataRetrievalFailureException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.elasticsearch.core.query.SeqNoPrimaryTerm;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+// RestaurantRepository without Elasticsearch, for load tests and profiling of the application
+// itself. Active with the "in-memory" profile, see application-in-memory.properties.
+// Secondary indexes: average rating (sorted), name / cuisineType tokens, and a GeoGrid of locations.
+// search() follows RestaurantSearchRepositoryImpl: fuzzy best_fields text matching on name and
+// cuisineType, rating and radius filters, nearest first when a location is given.
+// suggest() follows the bool_prefix query of the typeahead: the token indexes are sorted, the
+// last word of the input is looked up as a prefix range.
+@Repository
+@Profile("in-memory")
+public class InMemoryRestaurantRepository extends InMemoryDocumentRepository<Restaurant> implements RestaurantRepository {
+
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    // Guarded by lock
+    private final NavigableSet<RatingEntry> byRating = new TreeSet<>();
+    private final TokenIndex nameTokens = new TokenIndex(Restaurant::getName);
+    private final TokenIndex cuisineTypeTokens = new TokenIndex(Restaurant::getCuisineType);
+    private final GeoGrid locations;
+
+    public InMemoryRestaurantRepository(@Value("${app.geo-index.cell-size-degrees:0.05}") double cellSizeDegrees) {
+        this.locations = new GeoGrid(cellSizeDegrees);
+    }
+
+    @Override
+    public Page<RestaurantSearchResult> search(RestaurantSearchCriteria criteria, Pageable pageable) {
+        float minRating = criteria.getMinRating() == null ? Float.NEGATIVE_INFINITY : criteria.getMinRating();
+        int end = (int) Math.min(Integer.MAX_VALUE, pageable.getOffset() + pageable.getPageSize());
+
+        List<RestaurantSearchResult> hits;
+        long total;
+        lock.readLock().lock();
+        try {
+            if (criteria.hasQuery()) {
+                hits = searchText(criteria, minRating);
+                total = hits.size();
+            } else if (criteria.hasRadius()) {
+                hits = locations.withinRadius(
+                        criteria.getLatitude(), criteria.getLongitude(), criteria.getRadiusKm(), minRating);
+                total = hits.size();
+            } else if (criteria.hasLocation()) {
+                hits = locations.nearest(criteria.getLatitude(), criteria.getLongitude(), end, minRating);
+                total = locations.count(minRating);
+            } else {
+                // Elasticsearch returns filter-only matches in index order; best rated first here
+                hits = new ArrayList<>();
+                NavigableSet<RatingEntry> matching = byRating.tailSet(new RatingEntry(minRating, ""), true).descendingSet();
+                for (RatingEntry entry : matching) {
+                    if (hits.size() == end) {
+                        break;
+                    }
+                    hits.add(new RestaurantSearchResult(documents.get(entry.id()), null));
+                }
+                total = matching.size();
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        int from = (int) Math.min(pageable.getOffset(), hits.size());
+        List<RestaurantSearchResult> content = hits.subList(from, Math.min(end, hits.size())).stream()
+                .map(hit -> new RestaurantSearchResult(summaryOf(hit.getRestaurant(), false), hit.getDistanceKm()))
+                .toList();
+        return new PageImpl<>(content, pageable, total);
+    }
+
+    // Scored like a multi_match best_fields query: the better of the two fields counts
+    private List<RestaurantSearchResult> searchText(RestaurantSearchCriteria criteria, float minRating) {
+        List<String> queryTokens = tokenize(criteria.getQuery());
+        Map<String, Double> scores = new HashMap<>();
+        nameTokens.score(queryTokens, documents.size()).forEach((id, score) -> scores.merge(id, score, Math::max));
+        cuisineTypeTokens.score(queryTokens, documents.size()).forEach((id, score) -> scores.merge(id, score, Math::max));
+
+        List<ScoredHit> hits = new ArrayList<>();
+        scores.forEach((id, score) -> {
+            Restaurant restaurant = documents.get(id);
+            float rating = restaurant.getAverageRating() == null ? 0f : restaurant.getAverageRating();
+            if (rating < minRating) {
+                return;
+            }
+            Double distanceKm = null;
+            if (criteria.hasLocation() && restaurant.getGeoLocation() != null) {
+                distanceKm = GeoGrid.distanceKm(criteria.getLatitude(), criteria.getLongitude(),
+                        restaurant.getGeoLocation().getLat(), restaurant.getGeoLocation().getLon());
+            }
+            if (criteria.hasRadius() && (distanceKm == null || distanceKm > criteria.getRadiusKm())) {
+                return;
+            }
+            hits.add(new ScoredHit(new RestaurantSearchResult(restaurant, distanceKm), score));
+        });
+
+        // With a location the distance sort replaces relevance, restaurants without a location come last
+        Comparator<ScoredHit> order = criteria.hasLocation()
+                ? Comparator.comparing((ScoredHit hit) -> hit.result().getDistanceKm(), Comparator.nullsLast(Comparator.naturalOrder()))
+                : Comparator.comparingDouble(ScoredHit::score).reversed();
+        hits.sort(order.thenComparing(hit -> hit.result().getRestaurant().getId()));
+        return hits.stream().map(ScoredHit::result).toList();
+    }
+
+    // Scored like a bool_prefix multi_match with operator and: one field has to contain all words,
+    // the scores of the matching fields add up
+    @Override
+    public List<Restaurant> suggest(String prefix, int size) {
+        List<String> queryTokens = tokenize(prefix);
+        if (queryTokens.isEmpty()) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            Map<String, Double> scores = new HashMap<>();
+            nameTokens.prefixScore(queryTokens, documents.size()).forEach((id, score) -> scores.merge(id, score, Double::sum));
+            cuisineTypeTokens.prefixScore(queryTokens, documents.size()).forEach((id, score) -> scores.merge(id, score, Double::sum));
+            return scores.entrySet().stream()
+                    .sorted(Map.Entry.<String, Double>comparingByValue().reversed().thenComparing(Map.Entry::getKey))
+                    .limit(size)
+                    .map(entry -> suggestionOf(documents.get(entry.getKey())))
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void forEachSummary(Consumer<Restaurant> consumer) {
+        documents.values().forEach(restaurant -> consumer.accept(summaryOf(restaurant, true)));
+    }
+
+    // Same arithmetic as the painless script of RestaurantRatingRepositoryImpl
+    @Override
+    public void applyRatingChange(String restaurantId, Integer addedRating, Integer removedRating) {
+        lock.writeLock().lock();
+        try {
+            Restaurant current = documents.get(restaurantId);
+            if (current == null) {
+                throw new DataRetrievalFailureException("Restaurant not found: " + restaurantId);
+            }
+            Restaurant updated = copy(current);
+            long sum = updated.getRatingSum() == null ? 0 : updated.getRatingSum();
+            long count = updated.getReviewCount() == null ? 0 : updated.getReviewCount();
+            Map<String, Integer> histogram = updated.getRatingHistogram() == null
+                    ? new HashMap<>()
+                    : updated.getRatingHistogram();
+            if (removedRating != null) {
+                String star = String.valueOf(removedRating);
+                sum -= removedRating;
+                count -= 1;
+                histogram.put(star, Math.max(0, histogram.getOrDefault(star, 0) - 1));
+            }
+            if (addedRating != null) {
+                String star = String.valueOf(addedRating);
+                sum += addedRating;
+                count += 1;
+                histogram.put(star, histogram.getOrDefault(star, 0) + 1);
+            }
+            count = Math.max(0, count);
+            updated.setRatingSum(sum);
+            updated.setReviewCount((int) count);
+            updated.setRatingHistogram(histogram);
+            updated.setAverageRating(count == 0 ? 0f : (float) ((double) sum / count));
+            store(updated);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean replaceRatingAggregates(Restaurant restaurant) {
+        lock.writeLock().lock();
+        try {
+            Restaurant current = documents.get(restaurant.getId());
+            if (current == null || !isCurrentVersion(restaurant)) {
+                return false;
+            }
+            Restaurant updated = copy(current);
+            updated.setAverageRating(restaurant.getAverageRating());
+            updated.setRatingSum(restaurant.getRatingSum());
+            updated.setReviewCount(restaurant.getReviewCount());
+            updated.setRatingHistogram(restaurant.getRatingHistogram() == null
+                    ? null
+                    : new HashMap<>(restaurant.getRatingHistogram()));
+            store(updated);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Map<String, String> bulkIndex(List<Restaurant> restaurants, long maxRequestBytes) {
+        lock.writeLock().lock();
+        try {
+            restaurants.forEach(this::store);
+            return new HashMap<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Map<String, String> bulkUpdateGeoLocations(List<Restaurant> restaurants) {
+        Map<String, String> failures = new HashMap<>();
+        lock.writeLock().lock();
+        try {
+            for (Restaurant restaurant : restaurants) {
+                Restaurant current = documents.get(restaurant.getId());
+                if (current == null) {
+                    failures.put(restaurant.getId(), "document missing");
+                } else if (!isCurrentVersion(restaurant)) {
+                    failures.put(restaurant.getId(), "version conflict");
+                } else {
+                    Restaurant updated = copy(current);
+                    updated.setGeoLocation(restaurant.getGeoLocation());
+                    updated.setGeoLocationPending(restaurant.getGeoLocationPending());
+                    store(updated);
+                }
+            }
+            return failures;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void refresh() {
+        // Writes are visible straight away
+    }
+
+    @Override
+    public Page<Restaurant> findByGeoLocationPendingTrue(Pageable pageable) {
+        List<Restaurant> pending = documents.values().stream()
+                .filter(restaurant -> Boolean.TRUE.equals(restaurant.getGeoLocationPending()))
+                .sorted(Comparator.comparing(Restaurant::getId))
+                .toList();
+        return page(pending, pageable);
+    }
+
+    @Override
+    protected void reindex(Restaurant previous, Restaurant current) {
+        if (previous != null) {
+            byRating.remove(RatingEntry.of(previous));
+            nameTokens.remove(previous);
+            cuisineTypeTokens.remove(previous);
+            locations.remove(previous.getId());
+        }
+        if (current != null) {
+            byRating.add(RatingEntry.of(current));
+            nameTokens.add(current);
+            cuisineTypeTokens.add(current);
+            locations.put(summaryOf(current, true));
+        }
+    }
+
+    @Override
+    protected String idOf(Restaurant restaurant) {
+        return restaurant.getId();
+    }
+
+    @Override
+    protected void setId(Restaurant restaurant, String id) {
+        restaurant.setId(id);
+    }
+
+    @Override
+    protected SeqNoPrimaryTerm versionOf(Restaurant restaurant) {
+        return restaurant.getSeqNoPrimaryTerm();
+    }
+
+    @Override
+    protected void setVersion(Restaurant restaurant, SeqNoPrimaryTerm version) {
+        restaurant.setSeqNoPrimaryTerm(version);
+    }
+
+    @Override
+    protected Restaurant copy(Restaurant restaurant) {
+        return Restaurant.builder()
+                .id(restaurant.getId())
+                .seqNoPrimaryTerm(restaurant.getSeqNoPrimaryTerm())
+                .name(restaurant.getName())
+                .cuisineType(restaurant.getCuisineType())
+                .contactInformation(restaurant.getContactInformation())
+                .averageRating(restaurant.getAverageRating())
+                .ratingSum(restaurant.getRatingSum())
+                .reviewCount(restaurant.getReviewCount())
+                .ratingHistogram(restaurant.getRatingHistogram() == null ? null : new HashMap<>(restaurant.getRatingHistogram()))
+                .geoLocation(restaurant.getGeoLocation())
+                .geoLocationPending(restaurant.getGeoLocationPending())
+                .address(restaurant.getAddress())
+                .operatingHours(restaurant.getOperatingHours())
+                .photos(restaurant.getPhotos() == null ? null : new ArrayList<>(restaurant.getPhotos()))
+                .createdBy(restaurant.getCreatedBy())
+                .build();
+    }
+
+    // The fields of RestaurantSearchRepositoryImpl.SUMMARY_FIELDS (and the location when asked for)
+    private static Restaurant summaryOf(Restaurant restaurant, boolean withLocation) {
+        return Restaurant.builder()
+                .id(restaurant.getId())
+                .name(restaurant.getName())
+                .cuisineType(restaurant.getCuisineType())
+                .averageRating(restaurant.getAverageRating())
+                .ratingSum(restaurant.getRatingSum())
+                .reviewCount(restaurant.getReviewCount())
+                .address(restaurant.getAddress())
+                .photos(restaurant.getPhotos())
+                .geoLocation(withLocation ? restaurant.getGeoLocation() : null)
+                .build();
+    }
+
+    // The fields of RestaurantSearchRepositoryImpl.SUGGESTION_FIELDS
+    private static Restaurant suggestionOf(Restaurant restaurant) {
+        return Restaurant.builder()
+                .id(restaurant.getId())
+                .name(restaurant.getName())
+                .cuisineType(restaurant.getCuisineType())
+                .build();
+    }
+
+    // Lower-cased words, roughly what the standard analyzer produces
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        for (String token : NON_WORD.split(text.toLowerCase(Locale.ROOT))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private record ScoredHit(RestaurantSearchResult result, double score) {
+    }
+
+    private record RatingEntry(float rating, String id) implements Comparable<RatingEntry> {
+
+        static RatingEntry of(Restaurant restaurant) {
+            return new RatingEntry(restaurant.getAverageRating() == null ? 0f : restaurant.getAverageRating(), restaurant.getId());
+        }
+
+        @Override
+        public int compareTo(RatingEntry other) {
+            int byRating = Float.compare(rating, other.rating);
+            return byRating != 0 ? byRating : id.compareTo(other.id);
+        }
+    }
+
+    // Inverted index of one text field: token -> ids of the restaurants containing it, sorted by token for prefix lookups
+    private static final class TokenIndex {
+
+        private final Function<Restaurant, String> field;
+        private final NavigableMap<String, Set<String>> idsByToken = new TreeMap<>();
+
+        TokenIndex(Function<Restaurant, String> field) {
+            this.field = field;
+        }
+
+        void add(Restaurant restaurant) {
+            for (String token : tokenize(field.apply(restaurant))) {
+                idsByToken.computeIfAbsent(token, key -> new HashSet<>()).add(restaurant.getId());
+            }
+        }
+
+        void remove(Restaurant restaurant) {
+            for (String token : tokenize(field.apply(restaurant))) {
+                Set<String> ids = idsByToken.get(token);
+                if (ids != null) {
+                    ids.remove(restaurant.getId());
+                    if (ids.isEmpty()) {
+                        idsByToken.remove(token);
+                    }
+                }
+            }
+        }
+
+        // Per query token, the best matching token of the field counts: weighted by its rarity (BM25 idf)
+        // and, for fuzzy matches, by its similarity. Fuzziness is Elasticsearch's AUTO: no edits up to
+        // 2 characters, 1 edit up to 5, 2 edits above.
+        Map<String, Double> score(List<String> queryTokens, int documentCount) {
+            Map<String, Double> scores = new HashMap<>();
+            for (String queryToken : queryTokens) {
+                int maxEdits = queryToken.length() <= 2 ? 0 : queryToken.length() <= 5 ? 1 : 2;
+                Map<String, Double> best = new HashMap<>();
+                idsByToken.forEach((token, ids) -> {
+                    int edits = maxEdits == 0
+                            ? (token.equals(queryToken) ? 0 : 1)
+                            : editDistance(queryToken, token, maxEdits);
+                    if (edits > maxEdits) {
+                        return;
+                    }
+                    double idf = Math.log(1 + (documentCount - ids.size() + 0.5) / (ids.size() + 0.5));
+                    double similarity = 1 - (double) edits / Math.min(queryToken.length(), token.length());
+                    double score = idf * similarity;
+                    for (String id : ids) {
+                        best.merge(id, score, Math::max);
+                    }
+                });
+                best.forEach((id, score) -> scores.merge(id, score, Double::sum));
+            }
+            return scores;
+        }
+
+        // Restaurants containing every query token, the last one as a prefix (the user is still typing it).
+        // Each token counts with the idf of the field token it matched, the best one for the prefix.
+        Map<String, Double> prefixScore(List<String> queryTokens, int documentCount) {
+            Map<String, Double> scores = null;
+            for (int i = 0; i < queryTokens.size(); i++) {
+                String queryToken = queryTokens.get(i);
+                Map<String, Set<String>> matching = i < queryTokens.size() - 1
+                        ? idsByToken.subMap(queryToken, true, queryToken, true)
+                        : idsByToken.subMap(queryToken, true, queryToken + Character.MAX_VALUE, false);
+                Map<String, Double> previous = scores;
+                Map<String, Double> best = new HashMap<>();
+                matching.forEach((token, ids) -> {
+                    double idf = Math.log(1 + (documentCount - ids.size() + 0.5) / (ids.size() + 0.5));
+                    for (String id : ids) {
+                        if (previous == null || previous.containsKey(id)) {
+                            best.merge(id, idf, Math::max);
+                        }
+                    }
+                });
+                if (previous != null) {
+                    best.replaceAll((id, score) -> score + previous.get(id));
+                }
+                scores = best;
+                if (scores.isEmpty()) {
+                    break;
+                }
+            }
+            return scores == null ? Map.of() : scores;
+        }
+
+        // Levenshtein distance with transpositions, gives up (returns maxEdits + 1) beyond maxEdits
+        private static int editDistance(String first, String second, int maxEdits) {
+            if (Math.abs(first.length() - second.length()) > maxEdits) {
+                return maxEdits + 1;
+            }
+            int[][] distances = new int[first.length() + 1][second.length() + 1];
+            for (int i = 0; i <= first.length(); i++) {
+                distances[i][0] = i;
+            }
+            for (int j = 0; j <= second.length(); j++) {
+                distances[0][j] = j;
+            }
+            for (int i = 1; i <= first.length(); i++) {
+                int rowMin = Integer.MAX_VALUE;
+                for (int j = 1; j <= second.length(); j++) {
+                    int cost = first.charAt(i - 1) == second.charAt(j - 1) ? 0 : 1;
+                    int distance = Math.min(Math.min(distances[i - 1][j] + 1, distances[i][j - 1] + 1),
+                            distances[i - 1][j - 1] + cost);
+                    if (i > 1 && j > 1 && first.charAt(i - 1) == second.charAt(j - 2)
+                            && first.charAt(i - 2) == second.charAt(j - 1)) {
+                        distance = Math.min(distance, distances[i - 2][j - 2] + 1);
+                    }
+                    distances[i][j] = distance;
+                    rowMin = Math.min(rowMin, distance);
+                }
+                if (rowMin > maxEdits) {
+                    return maxEdits + 1;
+                }
+            }
+            return distances[first.length()][second.length()];
+        }
+    }
+}
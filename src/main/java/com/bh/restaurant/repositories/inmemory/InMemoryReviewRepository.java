@@ -0,0 +1,232 @@
+package com.bh.restaurant.repositories.inmemory;
+
+import com.bh.restaurant.domain.entities.Review;
+import com.bh.restaurant.repositories.ReviewRepository;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.data.elasticsearch.core.SearchHitsImpl;
+import org.springframework.data.elasticsearch.core.TotalHitsRelation;
+import org.springframework.data.elasticsearch.core.query.SeqNoPrimaryTerm;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// ReviewRepository without Elasticsearch, see InMemoryRestaurantRepository.
+// Reviews are indexed by restaurant id. Sort values are built like Elasticsearch's (dates as epoch
+// milliseconds, integers as longs), so cursors of listReviewsAfter work the same way.
+@Repository
+@Profile("in-memory")
+public class InMemoryReviewRepository extends InMemoryDocumentRepository<Review> implements ReviewRepository {
+
+    // Guarded by lock
+    private final Map<String, Set<String>> reviewIdsByRestaurant = new HashMap<>();
+
+    @Override
+    public Page<Review> findByRestaurantId(String restaurantId, Pageable pageable) {
+        return page(sortedReviewsOf(restaurantId, pageable.getSort()).stream().map(SortedReview::review).toList(), pageable);
+    }
+
+    @Override
+    public void deleteByRestaurantId(String restaurantId) {
+        lock.writeLock().lock();
+        try {
+            Set<String> reviewIds = reviewIdsByRestaurant.get(restaurantId);
+            if (reviewIds != null) {
+                deleteAllById(List.copyOf(reviewIds));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean existsByRestaurantIdAndWrittenById(String restaurantId, String userId) {
+        lock.readLock().lock();
+        try {
+            return reviewIdsByRestaurant.getOrDefault(restaurantId, Set.of()).stream()
+                    .map(documents::get)
+                    .anyMatch(review -> review.getWrittenBy() != null && userId.equals(review.getWrittenBy().getId()));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean createIfAbsent(Review review) {
+        lock.writeLock().lock();
+        try {
+            if (documents.containsKey(review.getId())) {
+                return false;
+            }
+            review.setSeqNoPrimaryTerm(store(review).getSeqNoPrimaryTerm());
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void deleteIfUnchanged(Review review) {
+        lock.writeLock().lock();
+        try {
+            if (!documents.containsKey(review.getId()) || !isCurrentVersion(review)) {
+                throw new OptimisticLockingFailureException("Review was changed concurrently: " + review.getId());
+            }
+            deleteById(review.getId());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public SearchHits<Review> findByRestaurantIdAfter(String restaurantId, Sort sort, List<Object> searchAfter, int size) {
+        List<SearchHit<Review>> hits = new ArrayList<>(size);
+        for (SortedReview sorted : sortedReviewsOf(restaurantId, sort)) {
+            if (hits.size() == size) {
+                break;
+            }
+            if (searchAfter != null && compare(sorted.sortValues(), searchAfter, sort) <= 0) {
+                continue;
+            }
+            hits.add(new SearchHit<>("reviews", sorted.review().getId(), null, Float.NaN,
+                    sorted.sortValues().toArray(), null, null, null, null, null, copy(sorted.review())));
+        }
+        // Like the Elasticsearch query, total hits are not tracked
+        return new SearchHitsImpl<>(0, TotalHitsRelation.OFF, Float.NaN, null, null, null, hits, null, null, null);
+    }
+
+    @Override
+    public Map<String, Map<Integer, Long>> countByRestaurantIdAndRating() {
+        Map<String, Map<Integer, Long>> counts = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            for (Review review : documents.values()) {
+                counts.computeIfAbsent(review.getRestaurantId(), key -> new HashMap<>())
+                        .merge(review.getRating(), 1L, Long::sum);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return counts;
+    }
+
+    private List<SortedReview> sortedReviewsOf(String restaurantId, Sort sort) {
+        List<SortedReview> sorted = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (String reviewId : reviewIdsByRestaurant.getOrDefault(restaurantId, Set.of())) {
+                Review review = documents.get(reviewId);
+                sorted.add(new SortedReview(review, sortValues(review, sort)));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        sorted.sort((first, second) -> compare(first.sortValues(), second.sortValues(), sort));
+        return sorted;
+    }
+
+    private static List<Object> sortValues(Review review, Sort sort) {
+        BeanWrapperImpl properties = new BeanWrapperImpl(review);
+        List<Object> values = new ArrayList<>();
+        for (Sort.Order order : sort) {
+            Object value = properties.getPropertyValue(order.getProperty());
+            if (value instanceof LocalDateTime dateTime) {
+                value = dateTime.toInstant(ZoneOffset.UTC).toEpochMilli();
+            } else if (value instanceof Integer number) {
+                value = number.longValue();
+            }
+            values.add(value);
+        }
+        return values;
+    }
+
+    // Compares sort values in the direction of each sort order, missing values last
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static int compare(List<Object> first, List<Object> second, Sort sort) {
+        int index = 0;
+        for (Sort.Order order : sort) {
+            Object a = first.get(index);
+            Object b = second.get(index);
+            index++;
+            int result;
+            if (a == null || b == null) {
+                result = a == b ? 0 : a == null ? 1 : -1;
+            } else if (a instanceof Number x && b instanceof Number y) {
+                result = Long.compare(x.longValue(), y.longValue());
+            } else {
+                result = ((Comparable) a).compareTo(b);
+            }
+            if (result != 0) {
+                return order.isAscending() || a == null || b == null ? result : -result;
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    protected void reindex(Review previous, Review current) {
+        if (previous != null) {
+            Set<String> reviewIds = reviewIdsByRestaurant.get(previous.getRestaurantId());
+            if (reviewIds != null) {
+                reviewIds.remove(previous.getId());
+                if (reviewIds.isEmpty()) {
+                    reviewIdsByRestaurant.remove(previous.getRestaurantId());
+                }
+            }
+        }
+        if (current != null) {
+            reviewIdsByRestaurant.computeIfAbsent(current.getRestaurantId(), key -> new HashSet<>()).add(current.getId());
+        }
+    }
+
+    @Override
+    protected String idOf(Review review) {
+        return review.getId();
+    }
+
+    @Override
+    protected void setId(Review review, String id) {
+        review.setId(id);
+    }
+
+    @Override
+    protected SeqNoPrimaryTerm versionOf(Review review) {
+        return review.getSeqNoPrimaryTerm();
+    }
+
+    @Override
+    protected void setVersion(Review review, SeqNoPrimaryTerm version) {
+        review.setSeqNoPrimaryTerm(version);
+    }
+
+    @Override
+    protected Review copy(Review review) {
+        return Review.builder()
+                .id(review.getId())
+                .seqNoPrimaryTerm(review.getSeqNoPrimaryTerm())
+                .restaurantId(review.getRestaurantId())
+                .content(review.getContent())
+                .rating(review.getRating())
+                .datePosted(review.getDatePosted())
+                .lastEdited(review.getLastEdited())
+                .photos(review.getPhotos() == null ? null : new ArrayList<>(review.getPhotos()))
+                .writtenBy(review.getWrittenBy())
+                .build();
+    }
+
+    private record SortedReview(Review review, List<Object> sortValues) {
+    }
+}
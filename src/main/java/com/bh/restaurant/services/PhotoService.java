@@ -4,9 +4,18 @@ import com.bh.restaurant.domain.entities.Photo;
 import org.springframework.core.io.Resource;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.InputStream;
 import java.util.Optional;
 
 public interface PhotoService {
     Photo uploadPhoto(MultipartFile file);
+
+    // Store a raw upload in a single pass. The image type is detected from the content
+    // and the size limit is enforced while reading; contentLength is -1 when unknown.
+    Photo uploadPhoto(InputStream inputStream, long contentLength);
     Optional<Resource> getPhotoAsResource(String id);
+
+    // Returns the smallest stored thumbnail at least as wide as the requested width,
+    // or the original when there is none
+    Optional<Resource> getPhotoAsResource(String id, Integer width);
 }
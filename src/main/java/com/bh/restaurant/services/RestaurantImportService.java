@@ -0,0 +1,12 @@
+package com.bh.restaurant.services;
+
+import com.bh.restaurant.domain.ImportFormat;
+import com.bh.restaurant.domain.RestaurantImportResult;
+
+import java.io.InputStream;
+
+public interface RestaurantImportService {
+    // Creates a restaurant for every valid line of the input. The input is read incrementally,
+    // memory use depends on the batch size only, not on the size of the input.
+    RestaurantImportResult importRestaurants(InputStream inputStream, ImportFormat format);
+}
@@ -1,16 +1,19 @@
 package com.bh.restaurant.services;
 
 import com.bh.restaurant.domain.RestaurantCreateUpdateRequest;
+import com.bh.restaurant.domain.RestaurantSearchResult;
 import com.bh.restaurant.domain.entities.Restaurant;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface RestaurantService {
     Restaurant createRestaurant(RestaurantCreateUpdateRequest request);
 
-    Page<Restaurant> searchRestaurants(
+    // Returns summary projections: only the fields needed for RestaurantSummaryDto are populated
+    Page<RestaurantSearchResult> searchRestaurants(
             String query,
             Float minRating,
             Float latitude,
@@ -19,8 +22,14 @@ public interface RestaurantService {
             Pageable pageable
     );
 
+    // Typeahead on name and cuisine type: only id, name and cuisineType are populated
+    List<Restaurant> suggestRestaurants(String prefix, int size);
+
     Optional<Restaurant> getRestaurant(String id);
 
+    // Bypasses the restaurant cache, which can lag behind writes made by other instances
+    Optional<Restaurant> getLatestRestaurant(String id);
+
     Restaurant updateRestaurant(String id, RestaurantCreateUpdateRequest request);
 
     void deleteRestaurant(String id);
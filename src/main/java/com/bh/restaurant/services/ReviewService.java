@@ -1,16 +1,19 @@
 package com.bh.restaurant.services;
 
 import com.bh.restaurant.domain.ReviewCreateUpdateRequest;
+import com.bh.restaurant.domain.ReviewCursorPage;
 import com.bh.restaurant.domain.entities.Review;
 import com.bh.restaurant.domain.entities.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 
 import java.util.Optional;
 
 public interface ReviewService {
     Review createReview(User author, String restaurantId, ReviewCreateUpdateRequest review);
     Page<Review> listReviews(String restaurantId, Pageable pageable);
+    ReviewCursorPage listReviewsAfter(String restaurantId, Sort sort, String cursor, int size);
     Optional<Review> getReview(String restaurantId, String reviewId);
     Review updateReview(User author, String restaurantId, String reviewId, ReviewCreateUpdateRequest review);
     void deleteReview(User author, String restaurantId, String reviewId);
@@ -3,6 +3,7 @@ package com.bh.restaurant.services;
 import org.springframework.core.io.Resource;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.InputStream;
 import java.util.Optional;
 
 public interface StorageService {
@@ -10,6 +11,9 @@ public interface StorageService {
     // Store a file and return its unique id
     String store(MultipartFile file, String filename);
 
+    // Store a stream under the exact given id, e.g. for generated thumbnails
+    String store(InputStream inputStream, String id);
+
     // Retrieve a file by its id
     Optional<Resource> loadAsResource(String id);
 }
@@ -0,0 +1,15 @@
+package com.bh.restaurant.services;
+
+import java.util.List;
+
+public interface ThumbnailService {
+
+    // Generate the resized copies of a stored photo, runs in the background
+    void generateThumbnails(String photoId);
+
+    // Configured thumbnail widths in pixels, ascending
+    List<Integer> getWidths();
+
+    // Id of the thumbnail of a photo for the given width, e.g. "abc.jpg" -> "abc-200w.jpg"
+    String thumbnailId(String photoId, int width);
+}
@@ -0,0 +1,140 @@
+package com.bh.restaurant.services.impl;
+
+import com.bh.restaurant.domain.GeoLocation;
+import com.bh.restaurant.domain.entities.Address;
+import com.bh.restaurant.services.GeoLocationService;
+import com.bh.restaurant.support.AddressNormalizer;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Caches the results of the actual geocoder (the bean named by app.geocoding.delegate) by
+// normalized address (see AddressNormalizer). Results are appended to a file under the storage
+// location ("<key>\t<latitude>\t<longitude>" per line) and loaded back on startup, so they
+// survive restarts. Concurrent lookups of the same address geocode once.
+@Service
+@Primary
+@Slf4j
+public class CachingGeoLocationService implements GeoLocationService {
+
+    private final GeoLocationService delegate;
+    private final Path storeFile;
+    private final AsyncCache<String, GeoLocation> cache;
+    private final Lock storeLock = new ReentrantLock();
+
+    public CachingGeoLocationService(
+            BeanFactory beanFactory,
+            @Value("${app.geocoding.delegate:randomLondonGeoLocationService}") String delegateName,
+            @Value("${app.storage.location:uploads}") String storageLocation,
+            @Value("${app.geocoding.cache.file:geocoding/cache.tsv}") String storeFile,
+            @Value("${app.geocoding.cache.max-size:100000}") long maxSize,
+            MeterRegistry meterRegistry) {
+        this.delegate = beanFactory.getBean(delegateName, GeoLocationService.class);
+        // Relative to the storage location; an absolute path is used as it is
+        this.storeFile = Paths.get(storageLocation).toAbsolutePath().normalize().resolve(storeFile);
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "geocoding");
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!Files.exists(storeFile)) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(storeFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t");
+                // Ignore a torn last line left by a crash
+                if (fields.length == 3) {
+                    try {
+                        cache.synchronous().put(fields[0], new GeoLocation(Double.valueOf(fields[1]), Double.valueOf(fields[2])));
+                    } catch (NumberFormatException ignored) {
+                    }
+                }
+            }
+            log.info("Loaded {} geocoding results from {}", cache.synchronous().estimatedSize(), storeFile);
+        } catch (IOException e) {
+            // Not fatal, addresses are geocoded again
+            log.warn("Could not load geocoding results from " + storeFile, e);
+        }
+    }
+
+    @Override
+    public GeoLocation geoLocate(Address address) {
+        String key = AddressNormalizer.canonicalKey(address);
+        if (key == null) {
+            return delegate.geoLocate(address);
+        }
+
+        // Only the empty future is created inside the cache's compute. The geocoder runs outside it,
+        // on the thread that created the future, so a slow geocoder neither blocks other keys of the
+        // same hash bin nor pins a virtual thread; lookups of the same address wait on the future.
+        CompletableFuture<GeoLocation> created = new CompletableFuture<>();
+        CompletableFuture<GeoLocation> future = cache.get(key, (k, executor) -> created);
+        if (future != created) {
+            return join(future);
+        }
+        GeoLocation geoLocation;
+        try {
+            geoLocation = delegate.geoLocate(address);
+        } catch (RuntimeException e) {
+            created.completeExceptionally(e); // removed from the cache, the next lookup tries again
+            throw e;
+        }
+        created.complete(geoLocation);
+        persist(key, geoLocation);
+        return geoLocation;
+    }
+
+    private static GeoLocation join(CompletableFuture<GeoLocation> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private void persist(String key, GeoLocation geoLocation) {
+        storeLock.lock();
+        try {
+            Files.createDirectories(storeFile.getParent());
+            try (BufferedWriter writer = Files.newBufferedWriter(storeFile, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                writer.write(key + "\t" + geoLocation.getLatitude() + "\t" + geoLocation.getLongitude());
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            // The result is still cached in memory, it's only lost on restart
+            log.warn("Could not persist geocoding result to " + storeFile, e);
+        } finally {
+            storeLock.unlock();
+        }
+    }
+}
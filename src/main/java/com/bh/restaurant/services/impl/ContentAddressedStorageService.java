@@ -0,0 +1,235 @@
+package com.bh.restaurant.services.impl;
+
+import com.bh.restaurant.exceptions.StorageException;
+import com.bh.restaurant.services.StorageService;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+// Stores every distinct file content once, named after its SHA-256 hash ("blobs/ab/cd/<sha256>.<ext>",
+// sharded as described in ShardedLayout).
+// Photo ids are mapped to their blob in memory; the mapping is persisted in an append-only
+// index file ("<photo id> <blob>" per line, in "index/") that is replayed on startup.
+// Files stored before this mode was enabled are still served from their original location.
+@Service
+@Slf4j
+@ConditionalOnProperty(name = "app.storage.mode", havingValue = "content-addressed")
+public class ContentAddressedStorageService implements StorageService {
+
+    static final String BLOBS_DIRECTORY = "blobs";
+    static final String INDEX_DIRECTORY = "index";
+    static final String INDEX_FILE = "photo-index.log";
+
+    // Names in the storage root that are not photos, never looked up as flat layout files
+    private static final Set<String> RESERVED_NAMES = Set.of(INDEX_FILE, BLOBS_DIRECTORY, INDEX_DIRECTORY, "geocoding");
+
+    // Photo ids are random UUIDs with the file extension
+    private static final Pattern PHOTO_ID =
+            Pattern.compile("[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}(\\.[A-Za-z0-9]+)?");
+
+    @Value("${app.storage.location:uploads}") // Default value if not set in properties
+    private String storageLocation; // Directory for file storage
+    private Path rootLocation; // Path to the root location for file storage
+    private Path blobsLocation;
+    private Path indexFile;
+
+    // Photo id -> blob file name
+    private final Map<String, String> blobsByPhotoId = new ConcurrentHashMap<>();
+    private final Lock indexLock = new ReentrantLock();
+
+    @PostConstruct // This method is called after the bean's properties have been set
+    public void init() {
+        rootLocation = Paths.get(storageLocation).toAbsolutePath().normalize();
+        blobsLocation = rootLocation.resolve(BLOBS_DIRECTORY);
+        // Outside the directories photos are served from, the mapping is internal
+        indexFile = rootLocation.resolve(INDEX_DIRECTORY).resolve(INDEX_FILE);
+        try {
+            Files.createDirectories(blobsLocation);
+            Files.createDirectories(indexFile.getParent());
+            moveLegacyIndex();
+            if (Files.exists(indexFile)) {
+                loadIndex();
+            }
+        } catch (IOException e) {
+            throw new StorageException("Could not initialize storage location", e);
+        }
+    }
+
+    @Override
+    public String store(MultipartFile file, String filename) {
+        // Check for empty files
+        if (file.isEmpty()) {
+            throw new StorageException("Failed to store empty file");
+        }
+
+        // Create the final filename with extension
+        String extension = StringUtils.getFilenameExtension(file.getOriginalFilename());
+        String finalFilename = filename + "." + extension;
+        validateId(finalFilename);
+
+        try {
+            // The upload is already buffered by the multipart resolver, so hash it first:
+            // a duplicate then costs a read and a lookup, but no disk write
+            String blob = blobName(sha256(file.getInputStream()), extension);
+            if (ShardedLayout.locate(blobsLocation, blob).isEmpty()) {
+                writeBlob(file.getInputStream(), blob);
+            }
+            map(finalFilename, blob);
+            return finalFilename;
+        } catch (IOException e) {
+            throw new StorageException("Failed to store file", e);
+        }
+    }
+
+    @Override
+    public String store(InputStream inputStream, String id) {
+        validateId(id);
+
+        // Hash while writing to a temporary file, then keep it only if the content is new
+        try (inputStream) {
+            MessageDigest digest = newDigest();
+            Path tempFile = Files.createTempFile(blobsLocation, ".upload-", ".tmp");
+            try {
+                Files.copy(new DigestInputStream(inputStream, digest), tempFile, StandardCopyOption.REPLACE_EXISTING);
+                String blob = blobName(HexFormat.of().formatHex(digest.digest()),
+                        StringUtils.getFilenameExtension(id));
+                if (ShardedLayout.locate(blobsLocation, blob).isEmpty()) {
+                    Path blobFile = ShardedLayout.resolve(blobsLocation, blob);
+                    Files.createDirectories(blobFile.getParent());
+                    Files.move(tempFile, blobFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                }
+                map(id, blob);
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+            return id;
+        } catch (IOException e) {
+            throw new StorageException("Failed to store file", e);
+        }
+    }
+
+    @Override
+    public Optional<Resource> loadAsResource(String id) {
+        String blob = blobsByPhotoId.get(id);
+        if (blob != null) {
+            return ShardedLayout.locate(blobsLocation, blob).map(FileSystemResource::new);
+        }
+        // Stored before this mode was enabled
+        if (id == null || RESERVED_NAMES.contains(id) || !PHOTO_ID.matcher(id).matches()) {
+            return Optional.empty();
+        }
+        return ShardedLayout.locate(rootLocation, id).map(FileSystemResource::new);
+    }
+
+    // Earlier versions kept the index in the storage root
+    private void moveLegacyIndex() throws IOException {
+        Path legacyIndexFile = rootLocation.resolve(INDEX_FILE);
+        if (!Files.exists(legacyIndexFile)) {
+            return;
+        }
+        if (Files.exists(indexFile)) {
+            log.warn("Ignoring {}, the index is {}", legacyIndexFile, indexFile);
+            return;
+        }
+        Files.move(legacyIndexFile, indexFile, StandardCopyOption.ATOMIC_MOVE);
+        log.info("Moved photo index to {}", indexFile);
+    }
+
+    private void writeBlob(InputStream inputStream, String blob) throws IOException {
+        // Move into place atomically, so concurrent readers never see a partial blob
+        try (inputStream) {
+            Path tempFile = Files.createTempFile(blobsLocation, ".upload-", ".tmp");
+            try {
+                Files.copy(inputStream, tempFile, StandardCopyOption.REPLACE_EXISTING);
+                Path blobFile = ShardedLayout.resolve(blobsLocation, blob);
+                Files.createDirectories(blobFile.getParent());
+                Files.move(tempFile, blobFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+        }
+    }
+
+    // Appends to the index before publishing the mapping, so an id that was returned survives a restart.
+    // A lock rather than synchronized, which would pin the carrier of a virtual thread during the I/O.
+    private void map(String id, String blob) throws IOException {
+        indexLock.lock();
+        try (BufferedWriter writer = Files.newBufferedWriter(indexFile, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            writer.write(id + " " + blob);
+            writer.newLine();
+        } finally {
+            indexLock.unlock();
+        }
+        blobsByPhotoId.put(id, blob);
+    }
+
+    private void loadIndex() throws IOException {
+        List<String> lines = Files.readAllLines(indexFile, StandardCharsets.UTF_8);
+        for (String line : lines) {
+            int separator = line.indexOf(' ');
+            // Ignore a torn last line left by a crash
+            if (separator > 0 && separator < line.length() - 1) {
+                blobsByPhotoId.put(line.substring(0, separator), line.substring(separator + 1));
+            }
+        }
+        log.info("Loaded {} photo mappings from {}", blobsByPhotoId.size(), indexFile);
+    }
+
+    // Security check to prevent directory traversal and ids that would break the index format
+    private void validateId(String id) {
+        if (!ShardedLayout.isValidName(id) || id.contains(" ")) {
+            throw new StorageException("Cannot store file outside current directory");
+        }
+    }
+
+    private static String blobName(String hash, String extension) {
+        // The extension is kept so the media type can be derived from the blob's name
+        return extension == null ? hash : hash + "." + extension;
+    }
+
+    private static String sha256(InputStream inputStream) throws IOException {
+        MessageDigest digest = newDigest();
+        try (InputStream in = new DigestInputStream(inputStream, digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -5,15 +5,15 @@ import com.bh.restaurant.services.StorageService;
 import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.MalformedURLException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -22,6 +22,7 @@ import java.util.Optional;
 
 @Service
 @Slf4j
+@ConditionalOnProperty(name = "app.storage.mode", havingValue = "plain", matchIfMissing = true)
 public class FileSystemStorageService implements StorageService {
 
     @Value("${app.storage.location:uploads}") // Default value if not set in properties
@@ -30,7 +31,7 @@ public class FileSystemStorageService implements StorageService {
 
     @PostConstruct // This method is called after the bean's properties have been set
     public void init() {
-        rootLocation = Paths.get(storageLocation);
+        rootLocation = Paths.get(storageLocation).toAbsolutePath().normalize();
         try {
             Files.createDirectories(rootLocation);
         } catch (IOException e) {
@@ -49,22 +50,36 @@ public class FileSystemStorageService implements StorageService {
         String extension = StringUtils.getFilenameExtension(file.getOriginalFilename());
         String finalFilename = filename + "." + extension;
 
-        // Resolve and normalize the destination path
-        Path destinationFile = this.rootLocation
-                .resolve(Paths.get(finalFilename)) // Resolve the filename to the root location
-                .normalize() // Normalize the path to remove any redundant elements
-                .toAbsolutePath(); // Convert to an absolute path
+        try {
+            return store(file.getInputStream(), finalFilename);
+        } catch (IOException e) {
+            throw new StorageException("Failed to store file", e);
+        }
+    }
 
+    @Override
+    public String store(InputStream inputStream, String id) {
         // Security check to prevent directory traversal
-        if (!destinationFile.getParent().equals(this.rootLocation.toAbsolutePath())) {
+        if (!ShardedLayout.isValidName(id)) {
             throw new StorageException("Cannot store file outside current directory");
         }
 
-        // Copy the file to the destination
+        // Files are spread over two levels of subdirectories, e.g. uploads/3f/a2/<id>
+        Path destinationFile = ShardedLayout.resolve(rootLocation, id);
+
+        // Copy to a temporary file first and move it into place, so readers never see a partial file
         // Use try-with-resources to ensure the InputStream is closed after use
-        try (InputStream inputStream = file.getInputStream()) {
-            Files.copy(inputStream, destinationFile, StandardCopyOption.REPLACE_EXISTING);
-            return finalFilename;
+        try (inputStream) {
+            Files.createDirectories(destinationFile.getParent());
+            Path tempFile = Files.createTempFile(destinationFile.getParent(), ".upload-", ".tmp");
+            try {
+                Files.copy(inputStream, tempFile, StandardCopyOption.REPLACE_EXISTING);
+                Files.move(tempFile, destinationFile,
+                        StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+            return id;
         } catch (IOException e) {
             throw new StorageException("Failed to store file", e);
         }
@@ -72,21 +87,9 @@ public class FileSystemStorageService implements StorageService {
 
     @Override
     public Optional<Resource> loadAsResource(String filename) {
-        try {
-            // Resolve the file path relative to our root location
-            Path file = rootLocation.resolve(filename);
-
-            // Create a Resource object from the file path
-            Resource resource = new UrlResource(file.toUri());
-
-            // Check if the resource exists and is readable
-            if (resource.exists() || resource.isReadable()) {
-                return Optional.of(resource);
-            } else {
-                return Optional.empty();
-            }
-        } catch (MalformedURLException e) {
-            log.warn("Could not read file: " + filename, e);
-            return Optional.empty();        }
+        // Look in the sharded layout first, then in the flat one (files not migrated yet).
+        // Create a Resource object from the file path, file based so it can be served with sendfile
+        return ShardedLayout.locate(rootLocation, filename)
+                .map(FileSystemResource::new);
     }
 }
@@ -1,22 +1,55 @@
 package com.bh.restaurant.services.impl;
 
 import com.bh.restaurant.domain.entities.Photo;
+import com.bh.restaurant.exceptions.InvalidPhotoException;
+import com.bh.restaurant.exceptions.PhotoTooLargeException;
+import com.bh.restaurant.exceptions.StorageException;
 import com.bh.restaurant.services.PhotoService;
 import com.bh.restaurant.services.StorageService;
-import lombok.RequiredArgsConstructor;
+import com.bh.restaurant.services.ThumbnailService;
+import com.bh.restaurant.support.ImageFormat;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.time.LocalDateTime;
 import java.util.Optional;
 import java.util.UUID;
 
 @Service
-@RequiredArgsConstructor
 public class PhotoServiceImpl implements PhotoService {
 
     private final StorageService storageService;
+    private final ThumbnailService thumbnailService;
+    private final long maxUploadBytes;
+    private final DistributionSummary storedBytes;
+
+    public PhotoServiceImpl(
+            StorageService storageService,
+            ThumbnailService thumbnailService,
+            @Value("${app.photos.max-upload-size:10MB}") DataSize maxUploadSize,
+            MeterRegistry meterRegistry) {
+        this.storageService = storageService;
+        this.thumbnailService = thumbnailService;
+        this.maxUploadBytes = maxUploadSize.toBytes();
+        // Size of every accepted upload (thumbnails not included)
+        this.storedBytes = DistributionSummary.builder("photos.stored.bytes")
+                .baseUnit("bytes")
+                .minimumExpectedValue(1024.0)
+                .maximumExpectedValue((double) maxUploadBytes)
+                .register(meterRegistry);
+    }
 
     @Override
     public Photo uploadPhoto(MultipartFile file) {
@@ -24,6 +57,10 @@ public class PhotoServiceImpl implements PhotoService {
         String photoId = UUID.randomUUID().toString();
         // Store the file and get its URL
         String url = storageService.store(file, photoId);
+        storedBytes.record(file.getSize());
+
+        // Resized copies are generated in the background, the upload doesn't wait for them
+        thumbnailService.generateThumbnails(url);
 
         // Create and populate the photo entity
         return Photo.builder()
@@ -32,8 +69,109 @@ public class PhotoServiceImpl implements PhotoService {
                 .build();
     }
 
+    @Override
+    public Photo uploadPhoto(InputStream inputStream, long contentLength) {
+        // Reject before reading anything when the client announces an oversized body
+        if (contentLength > maxUploadBytes) {
+            throw new PhotoTooLargeException("Photo exceeds the maximum size of " + maxUploadBytes + " bytes");
+        }
+
+        try {
+            // Peek at the leading bytes to detect the image type, then rewind
+            BufferedInputStream in = new BufferedInputStream(inputStream);
+            in.mark(ImageFormat.HEADER_LENGTH);
+            byte[] header = new byte[ImageFormat.HEADER_LENGTH];
+            int headerLength = in.readNBytes(header, 0, header.length);
+            in.reset();
+
+            ImageFormat format = ImageFormat.detect(header, headerLength)
+                    .orElseThrow(() -> new InvalidPhotoException("Upload is not a supported image"));
+
+            // Spooled to a local temporary file first, the limit applies while bytes arrive. Storage
+            // calls hold a storage bulkhead permit, which a slow client must not keep while it sends.
+            String photoId = UUID.randomUUID() + "." + format.getExtension();
+            SizeLimitedInputStream limited = new SizeLimitedInputStream(in, maxUploadBytes);
+            Path spooled = Files.createTempFile("photo-upload-", ".tmp");
+            String url;
+            try {
+                Files.copy(limited, spooled, StandardCopyOption.REPLACE_EXISTING);
+                try (InputStream spooledIn = Files.newInputStream(spooled)) {
+                    url = storageService.store(spooledIn, photoId);
+                }
+            } finally {
+                Files.deleteIfExists(spooled);
+            }
+            storedBytes.record(limited.count);
+
+            // Resized copies are generated in the background, the upload doesn't wait for them
+            thumbnailService.generateThumbnails(url);
+
+            return Photo.builder()
+                    .url(url)
+                    .uploadDate(LocalDateTime.now())
+                    .build();
+        } catch (IOException e) {
+            throw new StorageException("Failed to read upload", e);
+        }
+    }
+
     @Override
     public Optional<Resource> getPhotoAsResource(String id) {
         return storageService.loadAsResource(id);
     }
+
+    @Override
+    public Optional<Resource> getPhotoAsResource(String id, Integer width) {
+        if (width != null) {
+            // Thumbnails may not exist (yet), e.g. for small originals or while they are being generated
+            for (int thumbnailWidth : thumbnailService.getWidths()) {
+                if (thumbnailWidth < width) {
+                    continue;
+                }
+                Optional<Resource> thumbnail = storageService.loadAsResource(
+                        thumbnailService.thumbnailId(id, thumbnailWidth));
+                if (thumbnail.isPresent()) {
+                    return thumbnail;
+                }
+            }
+        }
+        return getPhotoAsResource(id);
+    }
+
+    // Fails the read, and so the store, as soon as more than the allowed bytes arrived
+    private static class SizeLimitedInputStream extends FilterInputStream {
+
+        private final long limit;
+        private long count;
+
+        SizeLimitedInputStream(InputStream in, long limit) {
+            super(in);
+            this.limit = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count(n);
+            }
+            return n;
+        }
+
+        private void count(int n) {
+            count += n;
+            if (count > limit) {
+                throw new PhotoTooLargeException("Photo exceeds the maximum size of " + limit + " bytes");
+            }
+        }
+    }
 }
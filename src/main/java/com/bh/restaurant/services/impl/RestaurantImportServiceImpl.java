@@ -0,0 +1,389 @@
+package com.bh.restaurant.services.impl;
+
+import com.bh.restaurant.domain.GeoLocation;
+import com.bh.restaurant.domain.ImportFormat;
+import com.bh.restaurant.domain.ImportLineError;
+import com.bh.restaurant.domain.RestaurantCreateUpdateRequest;
+import com.bh.restaurant.domain.RestaurantImportResult;
+import com.bh.restaurant.domain.dtos.AddressDto;
+import com.bh.restaurant.domain.dtos.RestaurantCreateUpdateRequestDto;
+import com.bh.restaurant.domain.entities.Restaurant;
+import com.bh.restaurant.exceptions.InvalidImportException;
+import com.bh.restaurant.exceptions.StorageException;
+import com.bh.restaurant.mappers.RestaurantMapper;
+import com.bh.restaurant.repositories.RestaurantRepository;
+import com.bh.restaurant.services.GeoLocationService;
+import com.bh.restaurant.services.RestaurantImportService;
+import com.bh.restaurant.support.RestaurantGeoIndex;
+import com.bh.restaurant.support.SearchResultCache;
+import com.bh.restaurant.support.SuggestionCache;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.elasticsearch.core.geo.GeoPoint;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Collectors;
+
+// Reads the input line by line and processes it in batches: the lines of a batch are geocoded
+// in parallel, then written with _bulk. The next batch is only read once the previous one is
+// written, which keeps memory bounded and slows the reader down to what Elasticsearch accepts.
+@Service
+@Slf4j
+public class RestaurantImportServiceImpl implements RestaurantImportService {
+
+    // Columns of the CSV format, the header line may list them in any order.
+    // photoIds holds several ids separated by '|'.
+    private static final List<String> CSV_COLUMNS = List.of(
+            "name", "cuisineType", "contactInformation",
+            "streetNumber", "streetName", "unit", "city", "state", "postalCode", "country",
+            "photoIds");
+
+    private final RestaurantRepository restaurantRepository;
+    private final GeoLocationService geoLocationService;
+    private final RestaurantMapper restaurantMapper;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final SearchResultCache searchResultCache;
+    private final SuggestionCache suggestionCache;
+    private final RestaurantGeoIndex restaurantGeoIndex;
+    private final int batchSize;
+    private final long maxBulkBytes;
+    private final Semaphore geocodingPermits;
+    private final int maxReportedErrors;
+    private final int maxLineLength;
+
+    public RestaurantImportServiceImpl(
+            RestaurantRepository restaurantRepository,
+            GeoLocationService geoLocationService,
+            RestaurantMapper restaurantMapper,
+            Validator validator,
+            ObjectMapper objectMapper,
+            SearchResultCache searchResultCache,
+            SuggestionCache suggestionCache,
+            RestaurantGeoIndex restaurantGeoIndex,
+            @Value("${app.import.batch-size:500}") int batchSize,
+            @Value("${app.import.max-bulk-size:5MB}") DataSize maxBulkSize,
+            @Value("${app.import.geocoding-parallelism:16}") int geocodingParallelism,
+            @Value("${app.import.max-reported-errors:1000}") int maxReportedErrors,
+            @Value("${app.import.max-line-length:65536}") int maxLineLength) {
+        this.restaurantRepository = restaurantRepository;
+        this.geoLocationService = geoLocationService;
+        this.restaurantMapper = restaurantMapper;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.searchResultCache = searchResultCache;
+        this.suggestionCache = suggestionCache;
+        this.restaurantGeoIndex = restaurantGeoIndex;
+        this.batchSize = batchSize;
+        this.maxBulkBytes = maxBulkSize.toBytes();
+        this.geocodingPermits = new Semaphore(geocodingParallelism); // shared by concurrent imports
+        this.maxReportedErrors = maxReportedErrors;
+        this.maxLineLength = maxLineLength;
+    }
+
+    @Override
+    public RestaurantImportResult importRestaurants(InputStream inputStream, ImportFormat format) {
+        RestaurantImportResult result = new RestaurantImportResult();
+        List<PendingLine> batch = new ArrayList<>(batchSize);
+        Map<String, Integer> csvHeader = null;
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+            LineReader lines = new LineReader(reader, maxLineLength);
+            String line;
+            long lineNumber = 0;
+            while ((line = lines.readLine()) != null) {
+                lineNumber++;
+                if (lines.isTooLong()) {
+                    if (format == ImportFormat.CSV && csvHeader == null) {
+                        throw new InvalidImportException("CSV header is longer than " + maxLineLength + " characters");
+                    }
+                    fail(result, lineNumber, "Line is longer than " + maxLineLength + " characters");
+                    continue;
+                }
+                if (line.isBlank()) {
+                    continue;
+                }
+                if (format == ImportFormat.CSV && csvHeader == null) {
+                    csvHeader = parseCsvHeader(line);
+                    continue;
+                }
+
+                try {
+                    RestaurantCreateUpdateRequestDto dto = format == ImportFormat.CSV
+                            ? parseCsvLine(line, csvHeader)
+                            : parseJsonLine(line);
+                    validate(dto);
+                    batch.add(new PendingLine(lineNumber, restaurantMapper.toRestaurantCreateUpdateRequest(dto)));
+                } catch (IllegalArgumentException e) {
+                    fail(result, lineNumber, e.getMessage());
+                }
+
+                if (batch.size() == batchSize) {
+                    writeBatch(batch, result);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                writeBatch(batch, result);
+            }
+        } catch (IOException e) {
+            throw new StorageException("Failed to read import input", e);
+        } finally {
+            // Whatever was written so far becomes searchable
+            if (result.getImported() > 0) {
+                restaurantRepository.refresh();
+                searchResultCache.invalidate();
+                suggestionCache.invalidate();
+            }
+        }
+
+        log.info("Imported {} restaurants, {} lines failed", result.getImported(), result.getFailed());
+        return result;
+    }
+
+    private void writeBatch(List<PendingLine> batch, RestaurantImportResult result) {
+        // Geocode every line of the batch in parallel, bounded by the geocoding permits
+        List<Restaurant> restaurants = new ArrayList<>(batch.size());
+        Map<String, Long> lineNumbersById = new HashMap<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<GeoLocation>> geoLocations = batch.stream()
+                    .map(pending -> executor.submit(() -> geoLocate(pending.request())))
+                    .toList();
+
+            for (int i = 0; i < batch.size(); i++) {
+                PendingLine pending = batch.get(i);
+                try {
+                    GeoLocation geoLocation = geoLocations.get(i).get();
+                    Restaurant restaurant = RestaurantServiceImpl.newRestaurant(
+                            pending.request(),
+                            new GeoPoint(geoLocation.getLatitude(), geoLocation.getLongitude()));
+                    restaurant.setId(UUID.randomUUID().toString());
+                    restaurants.add(restaurant);
+                    lineNumbersById.put(restaurant.getId(), pending.lineNumber());
+                } catch (ExecutionException e) {
+                    fail(result, pending.lineNumber(), "Geocoding failed: " + e.getCause().getMessage());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Import was interrupted", e);
+                }
+            }
+        }
+
+        Map<String, String> failures = bulkIndex(restaurants);
+        result.setImported(result.getImported() + restaurants.size() - failures.size());
+        failures.forEach((id, message) -> fail(result, lineNumbersById.get(id), "Indexing failed: " + message));
+        restaurants.stream()
+                .filter(restaurant -> !failures.containsKey(restaurant.getId()))
+                .forEach(restaurantGeoIndex::put);
+    }
+
+    // Error message of every restaurant that was not indexed, by id
+    private Map<String, String> bulkIndex(List<Restaurant> restaurants) {
+        try {
+            return restaurantRepository.bulkIndex(restaurants, maxBulkBytes);
+        } catch (RuntimeException e) {
+            // e.g. the bulkhead is full: the batch fails, the import goes on with the next one
+            log.warn("Indexing a batch of {} restaurants failed", restaurants.size(), e);
+            return restaurants.stream()
+                    .collect(Collectors.toMap(Restaurant::getId, restaurant -> String.valueOf(e.getMessage())));
+        }
+    }
+
+    private GeoLocation geoLocate(RestaurantCreateUpdateRequest request) throws InterruptedException {
+        geocodingPermits.acquire();
+        try {
+            return geoLocationService.geoLocate(request.getAddress());
+        } finally {
+            geocodingPermits.release();
+        }
+    }
+
+    // Every failure is counted, but only the first ones are listed so the report stays bounded
+    private void fail(RestaurantImportResult result, long lineNumber, String message) {
+        result.setFailed(result.getFailed() + 1);
+        if (result.getErrors().size() < maxReportedErrors) {
+            result.getErrors().add(new ImportLineError(lineNumber, message));
+        } else {
+            result.setErrorsTruncated(true);
+        }
+    }
+
+    private RestaurantCreateUpdateRequestDto parseJsonLine(String line) {
+        try {
+            return objectMapper.readValue(line, RestaurantCreateUpdateRequestDto.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid JSON: " + e.getOriginalMessage());
+        }
+    }
+
+    // Same rules as the create endpoint
+    private void validate(RestaurantCreateUpdateRequestDto dto) {
+        Set<ConstraintViolation<RestaurantCreateUpdateRequestDto>> violations = validator.validate(dto);
+        if (!violations.isEmpty()) {
+            throw new IllegalArgumentException("Validation failed: " + violations.stream()
+                    .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining(", ")));
+        }
+    }
+
+    private static Map<String, Integer> parseCsvHeader(String line) {
+        List<String> columns;
+        try {
+            columns = parseCsvFields(line);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidImportException("Invalid CSV header: " + e.getMessage());
+        }
+        Map<String, Integer> header = new HashMap<>();
+        for (int i = 0; i < columns.size(); i++) {
+            String column = columns.get(i).trim();
+            if (!CSV_COLUMNS.contains(column)) {
+                throw new InvalidImportException("Unknown CSV column: " + column);
+            }
+            header.put(column, i);
+        }
+        return header;
+    }
+
+    private static RestaurantCreateUpdateRequestDto parseCsvLine(String line, Map<String, Integer> header) {
+        List<String> fields = parseCsvFields(line);
+        if (fields.size() != header.size()) {
+            throw new IllegalArgumentException(
+                    "Expected " + header.size() + " columns but found " + fields.size());
+        }
+
+        String photoIds = csvField(fields, header, "photoIds");
+        return RestaurantCreateUpdateRequestDto.builder()
+                .name(csvField(fields, header, "name"))
+                .cuisineType(csvField(fields, header, "cuisineType"))
+                .contactInformation(csvField(fields, header, "contactInformation"))
+                .address(AddressDto.builder()
+                        .streetNumber(csvField(fields, header, "streetNumber"))
+                        .streetName(csvField(fields, header, "streetName"))
+                        .unit(csvField(fields, header, "unit"))
+                        .city(csvField(fields, header, "city"))
+                        .state(csvField(fields, header, "state"))
+                        .postalCode(csvField(fields, header, "postalCode"))
+                        .country(csvField(fields, header, "country"))
+                        .build())
+                .photoIds(photoIds == null || photoIds.isBlank()
+                        ? List.of()
+                        : Arrays.stream(photoIds.split("\\|")).map(String::trim).toList())
+                .build();
+    }
+
+    private static String csvField(List<String> fields, Map<String, Integer> header, String column) {
+        Integer index = header.get(column);
+        return index == null ? null : fields.get(index);
+    }
+
+    // Splits one CSV line (RFC 4180 quoting, "" inside a quoted field is a quote).
+    // Quoted fields can't span lines, every record is a single line.
+    private static List<String> parseCsvFields(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private record PendingLine(long lineNumber, RestaurantCreateUpdateRequest request) {
+    }
+
+    // Like BufferedReader.readLine, but a single line can't take more than maxLength characters
+    // of memory: the rest of a longer line is skipped up to the newline and the line is marked
+    // as too long. Lines end with "\n" or "\r\n".
+    private static final class LineReader {
+
+        private final BufferedReader reader;
+        private final int maxLength;
+        private final StringBuilder line = new StringBuilder();
+        private boolean tooLong;
+
+        LineReader(BufferedReader reader, int maxLength) {
+            this.reader = reader;
+            this.maxLength = maxLength;
+        }
+
+        // The next line without its terminator, null at the end of the input
+        String readLine() throws IOException {
+            line.setLength(0);
+            tooLong = false;
+            boolean carriageReturn = false;
+            int c;
+            while ((c = reader.read()) != -1 && c != '\n') {
+                if (carriageReturn) {
+                    append('\r'); // not followed by '\n', part of the line
+                }
+                carriageReturn = c == '\r';
+                if (!carriageReturn) {
+                    append((char) c);
+                }
+            }
+            if (carriageReturn && c == -1) {
+                append('\r');
+            }
+            if (c == -1 && line.isEmpty() && !tooLong) {
+                return null;
+            }
+            return line.toString();
+        }
+
+        boolean isTooLong() {
+            return tooLong;
+        }
+
+        private void append(char c) {
+            if (line.length() < maxLength) {
+                line.append(c);
+            } else {
+                tooLong = true;
+            }
+        }
+    }
+}
@@ -1,61 +1,107 @@
 package com.bh.restaurant.services.impl;
 
+import com.bh.restaurant.config.CacheConfig;
 import com.bh.restaurant.domain.GeoLocation;
 import com.bh.restaurant.domain.RestaurantCreateUpdateRequest;
+import com.bh.restaurant.domain.RestaurantSearchCriteria;
+import com.bh.restaurant.domain.RestaurantSearchResult;
 import com.bh.restaurant.domain.entities.Address;
 import com.bh.restaurant.domain.entities.Photo;
 import com.bh.restaurant.domain.entities.Restaurant;
 import com.bh.restaurant.exceptions.RestaurantNotFoundException;
 import com.bh.restaurant.repositories.RestaurantRepository;
+import com.bh.restaurant.repositories.ReviewRepository;
 import com.bh.restaurant.services.GeoLocationService;
 import com.bh.restaurant.services.RestaurantService;
+import com.bh.restaurant.support.AddressNormalizer;
+import com.bh.restaurant.support.GeocodingQueue;
+import com.bh.restaurant.support.OptimisticRetryExecutor;
+import com.bh.restaurant.support.RestaurantGeoIndex;
+import com.bh.restaurant.support.SearchResultCache;
+import com.bh.restaurant.support.SuggestionCache;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.elasticsearch.core.geo.GeoPoint;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class RestaurantServiceImpl implements RestaurantService {
 
+    // A typeahead list, not a search result page
+    private static final int MAX_SUGGESTIONS = 20;
+
     private final RestaurantRepository restaurantRepository;
+    private final ReviewRepository reviewRepository;
     private final GeoLocationService geoLocationService;
+    private final OptimisticRetryExecutor optimisticRetryExecutor;
+    private final SearchResultCache searchResultCache;
+    private final SuggestionCache suggestionCache;
+    private final RestaurantGeoIndex restaurantGeoIndex;
+    private final GeocodingQueue geocodingQueue;
+    private final MeterRegistry meterRegistry;
 
     @Override
     public Restaurant createRestaurant(RestaurantCreateUpdateRequest request) {
 
-        Address address = request.getAddress();
-        GeoLocation geoLocation = geoLocationService.geoLocate(address);
-        GeoPoint geoPoint = new GeoPoint(geoLocation.getLatitude(), geoLocation.getLongitude());
+        // With asynchronous geocoding the restaurant is saved without a location first
+        boolean geocodeLater = geocodingQueue.isAccepting();
+        GeoPoint geoPoint = null;
+        if (!geocodeLater) {
+            Address address = request.getAddress();
+            GeoLocation geoLocation = geoLocationService.geoLocate(address);
+            geoPoint = new GeoPoint(geoLocation.getLatitude(), geoLocation.getLongitude());
+        }
+
+        Restaurant restaurant = newRestaurant(request, geoPoint);
+        restaurant.setGeoLocationPending(geocodeLater);
+
+        Restaurant savedRestaurant = restaurantRepository.save(restaurant);
+        if (geocodeLater) {
+            geocodingQueue.submit(savedRestaurant.getId());
+        }
+        restaurantGeoIndex.put(savedRestaurant);
+        searchResultCache.invalidate();
+        suggestionCache.invalidate();
+        return savedRestaurant;
+    }
 
-        List<String> photoIds = request.getPhotoIds();
+    // A new restaurant without reviews, also used by the bulk import
+    static Restaurant newRestaurant(RestaurantCreateUpdateRequest request, GeoPoint geoPoint) {
+        List<String> photoIds = request.getPhotoIds() == null ? List.of() : request.getPhotoIds();
         List<Photo> photos = photoIds.stream().map(photoUrl -> Photo.builder()
                 .url(photoUrl)
                 .uploadDate(LocalDateTime.now())
                 .build()).toList();
 
-        Restaurant restaurant = Restaurant.builder()
+        return Restaurant.builder()
                 .name(request.getName())
                 .cuisineType(request.getCuisineType())
                 .contactInformation(request.getContactInformation())
-                .address(address)
+                .address(request.getAddress())
                 .geoLocation(geoPoint)
                 .operatingHours(request.getOperatingHours())
                 .averageRating(0f)
+                .ratingSum(0L)
+                .reviewCount(0)
+                .ratingHistogram(new HashMap<>())
                 .photos(photos)
                 .build();
-
-        return restaurantRepository.save(restaurant);
     }
 
     @Override
-    public Page<Restaurant> searchRestaurants(
+    public Page<RestaurantSearchResult> searchRestaurants(
             String query,
             Float minRating,
             Float latitude,
@@ -63,42 +109,63 @@ public class RestaurantServiceImpl implements RestaurantService {
             Float radius,
             Pageable pageable) {
 
-        // If just filtering my min rating
-        if (minRating != null && (query == null || query.isEmpty())) {
-            return restaurantRepository.findByAverageRatingGreaterThanEqual(minRating, pageable);
-        }
+        // Every supplied parameter is combined into a single Elasticsearch query
+        RestaurantSearchCriteria criteria = RestaurantSearchCriteria.builder()
+                .query(query)
+                .minRating(minRating)
+                .latitude(latitude)
+                .longitude(longitude)
+                .radiusKm(radius)
+                .build();
 
-        // Normalize min rating to be used in other queries
-        Float searchMinRating = minRating == null ? 0f : minRating;
-        // If there's a text, search query
-        if (query != null && !query.trim().isEmpty()) {
-            return restaurantRepository.findByQueryAndMinRating(query, searchMinRating, pageable);
-        }
+        // Timed per kind of search, see searchBranch
+        return meterRegistry.timer("restaurant.search", "branch", searchBranch(criteria)).record(() -> {
+            // "Near me" searches without text are answered from the in-memory geo index
+            if (!criteria.hasQuery() && criteria.hasLocation() && restaurantGeoIndex.isReady()) {
+                return restaurantGeoIndex.search(criteria, pageable);
+            }
+
+            // Repeated searches are answered from a short-lived cache
+            return searchResultCache.get(criteria, pageable, restaurantRepository::search);
+        });
+    }
 
-        // If there's a location search
-        if (latitude != null && longitude != null && radius != null) {
-            return restaurantRepository.findByLocationNear(latitude, longitude, radius, pageable);
+    // text: free text, possibly with location and rating filters; geo: location without text;
+    // rating: only a minimum rating; all: no criteria at all
+    private static String searchBranch(RestaurantSearchCriteria criteria) {
+        if (criteria.hasQuery()) {
+            return "text";
         }
+        if (criteria.hasLocation()) {
+            return "geo";
+        }
+        return criteria.getMinRating() != null ? "rating" : "all";
+    }
 
-        // Otherwise we'll perform a non-location search
-        return restaurantRepository.findAll(pageable);
+    @Override
+    public List<Restaurant> suggestRestaurants(String prefix, int size) {
+        if (prefix == null || prefix.isBlank()) {
+            return List.of();
+        }
+        int boundedSize = Math.max(1, Math.min(size, MAX_SUGGESTIONS));
+        return suggestionCache.get(prefix, boundedSize, restaurantRepository::suggest);
     }
 
     @Override
+    // Unknown ids are not cached: the cache holds no null values, and the id may be created later
+    @Cacheable(cacheNames = CacheConfig.RESTAURANTS_CACHE, key = "#id", unless = "#result == null")
     public Optional<Restaurant> getRestaurant(String id) {
         return restaurantRepository.findById(id);
     }
 
     @Override
-    public Restaurant updateRestaurant(String id, RestaurantCreateUpdateRequest request) {
-        // First, verify the restaurant exists
-        Restaurant existingRestaurant = getRestaurant(id)
-                .orElseThrow(() -> new RestaurantNotFoundException("Restaurant with ID does not exist: " + id));
-
-        // Get new geo coordinates based on the updated address
-        GeoLocation newGeoLocation = geoLocationService.geoLocate(request.getAddress());
-        GeoPoint newGeoPoint = new GeoPoint(newGeoLocation.getLatitude(), newGeoLocation.getLongitude());
+    public Optional<Restaurant> getLatestRestaurant(String id) {
+        return restaurantRepository.findById(id);
+    }
 
+    @Override
+    @CacheEvict(cacheNames = CacheConfig.RESTAURANTS_CACHE, key = "#id")
+    public Restaurant updateRestaurant(String id, RestaurantCreateUpdateRequest request) {
         // Convert photo URLs to Photo entities
         List<Photo> photos = request.getPhotoIds().stream().map(photoUrl ->
                 Photo.builder()
@@ -107,20 +174,58 @@ public class RestaurantServiceImpl implements RestaurantService {
                         .build()
         ).collect(Collectors.toList());
 
-        // Update all fields except averageRating
-        existingRestaurant.setName(request.getName());
-        existingRestaurant.setCuisineType(request.getCuisineType());
-        existingRestaurant.setContactInformation(request.getContactInformation());
-        existingRestaurant.setAddress(request.getAddress());
-        existingRestaurant.setGeoLocation(newGeoPoint);
-        existingRestaurant.setOperatingHours(request.getOperatingHours());
-        existingRestaurant.setPhotos(photos);
-
-        return restaurantRepository.save(existingRestaurant);
+        AtomicReference<GeoPoint> newGeoPoint = new AtomicReference<>();
+        boolean geocodeLater = geocodingQueue.isAccepting();
+
+        // The save is conditional on the version that was read. If a review write changed the
+        // rating aggregates in between, re-read and apply the update again instead of overwriting them.
+        Restaurant updatedRestaurant = optimisticRetryExecutor.execute("updateRestaurant", () -> {
+            // First, verify the restaurant exists (internal call, always reads the latest version)
+            Restaurant existingRestaurant = getRestaurant(id)
+                    .orElseThrow(() -> new RestaurantNotFoundException("Restaurant with ID does not exist: " + id));
+
+            // Geocode only when the address actually changed, at most once across retries.
+            // In the background the previous location is kept until the new one is known.
+            if (!AddressNormalizer.sameLocation(existingRestaurant.getAddress(), request.getAddress())) {
+                if (geocodeLater) {
+                    existingRestaurant.setGeoLocationPending(true);
+                } else if (newGeoPoint.get() == null) {
+                    GeoLocation newGeoLocation = geoLocationService.geoLocate(request.getAddress());
+                    newGeoPoint.set(new GeoPoint(newGeoLocation.getLatitude(), newGeoLocation.getLongitude()));
+                }
+                if (newGeoPoint.get() != null) {
+                    existingRestaurant.setGeoLocation(newGeoPoint.get());
+                    existingRestaurant.setGeoLocationPending(false);
+                }
+            }
+
+            // Update all fields except the rating aggregates
+            existingRestaurant.setName(request.getName());
+            existingRestaurant.setCuisineType(request.getCuisineType());
+            existingRestaurant.setContactInformation(request.getContactInformation());
+            existingRestaurant.setAddress(request.getAddress());
+            existingRestaurant.setOperatingHours(request.getOperatingHours());
+            existingRestaurant.setPhotos(photos);
+
+            return restaurantRepository.save(existingRestaurant);
+        });
+        if (Boolean.TRUE.equals(updatedRestaurant.getGeoLocationPending())) {
+            geocodingQueue.submit(id);
+        }
+        restaurantGeoIndex.put(updatedRestaurant);
+        searchResultCache.invalidate();
+        suggestionCache.invalidate();
+        return updatedRestaurant;
     }
 
     @Override
+    @CacheEvict(cacheNames = CacheConfig.RESTAURANTS_CACHE, key = "#id")
     public void deleteRestaurant(String id) {
         restaurantRepository.deleteById(id);
+        // Reviews are stored in their own index, so remove them as well
+        reviewRepository.deleteByRestaurantId(id);
+        restaurantGeoIndex.remove(id);
+        searchResultCache.invalidate();
+        suggestionCache.invalidate();
     }
 }
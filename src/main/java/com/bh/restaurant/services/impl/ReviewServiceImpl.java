@@ -1,6 +1,8 @@
 package com.bh.restaurant.services.impl;
 
+import com.bh.restaurant.config.CacheConfig;
 import com.bh.restaurant.domain.ReviewCreateUpdateRequest;
+import com.bh.restaurant.domain.ReviewCursorPage;
 import com.bh.restaurant.domain.entities.Photo;
 import com.bh.restaurant.domain.entities.Restaurant;
 import com.bh.restaurant.domain.entities.Review;
@@ -8,14 +10,25 @@ import com.bh.restaurant.domain.entities.User;
 import com.bh.restaurant.exceptions.RestaurantNotFoundException;
 import com.bh.restaurant.exceptions.ReviewNotAllowedException;
 import com.bh.restaurant.repositories.RestaurantRepository;
+import com.bh.restaurant.repositories.ReviewRepository;
+import com.bh.restaurant.services.RestaurantService;
 import com.bh.restaurant.services.ReviewService;
+import com.bh.restaurant.support.CursorCodec;
+import com.bh.restaurant.support.OptimisticRetryExecutor;
+import com.bh.restaurant.support.RestaurantGeoIndex;
+import com.bh.restaurant.support.SearchResultCache;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.elasticsearch.core.SearchHit;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -24,16 +37,29 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor // Final and non-final fields will be initialized in the constructor
 public class ReviewServiceImpl implements ReviewService {
 
+    // Review properties that can be used for sorting
+    private static final Set<String> SORTABLE_PROPERTIES = Set.of("datePosted", "rating");
+
+    // Upper bound for the size of a cursor page
+    private static final int MAX_CURSOR_PAGE_SIZE = 100;
+
     private final RestaurantRepository restaurantRepository;
+    private final ReviewRepository reviewRepository;
+    private final RestaurantService restaurantService;
+    private final OptimisticRetryExecutor optimisticRetryExecutor;
+    private final CursorCodec cursorCodec;
+    private final SearchResultCache searchResultCache;
+    private final RestaurantGeoIndex restaurantGeoIndex;
+    private final MeterRegistry meterRegistry;
+
     @Override
+    @CacheEvict(cacheNames = CacheConfig.RESTAURANTS_CACHE, key = "#restaurantId") // rating aggregates changed
     public Review createReview(User author, String restaurantId, ReviewCreateUpdateRequest createReview) {
-        Restaurant restaurant = getRestaurantOrThrow(restaurantId);
+        ensureRestaurantExists(restaurantId);
 
-        // Check if user has already reviewed this restaurant
-        boolean hasExistingReview = restaurant.getReviews().stream()
-                .anyMatch(r -> r.getWrittenBy().getId().equals(author.getId()));
-
-        if (hasExistingReview) {
+        // Reviews stored before ids were derived from restaurant and author have random ids,
+        // so createIfAbsent below doesn't see them
+        if (reviewRepository.existsByRestaurantIdAndWrittenById(restaurantId, author.getId())) {
             throw new ReviewNotAllowedException("User has already reviewed this restaurant");
         }
 
@@ -49,7 +75,8 @@ public class ReviewServiceImpl implements ReviewService {
 
         // Create review
         Review review = Review.builder()
-                .id(UUID.randomUUID().toString())
+                .id(reviewIdFor(restaurantId, author.getId()))
+                .restaurantId(restaurantId)
                 .content(createReview.getContent())
                 .rating(createReview.getRating())
                 .photos(photos)
@@ -58,168 +85,184 @@ public class ReviewServiceImpl implements ReviewService {
                 .writtenBy(author)
                 .build();
 
-        // Add review to restaurant
-        restaurant.getReviews().add(review);
-
-        // Update restaurant's average rating
-        updateRestaurantAverageRating(restaurant);
+        // Save the review into its own index.
+        // One review per user and restaurant: if two requests race, Elasticsearch rejects the second one.
+        if (!reviewRepository.createIfAbsent(review)) {
+            throw new ReviewNotAllowedException("User has already reviewed this restaurant");
+        }
 
-        // Save restaurant with new review
-        Restaurant updatedRestaurant = restaurantRepository.save(restaurant);
+        // Update restaurant's rating aggregates on the Elasticsearch side
+        restaurantRepository.applyRatingChange(restaurantId, review.getRating(), null);
+        restaurantGeoIndex.applyRatingChange(restaurantId, review.getRating(), null);
+        searchResultCache.invalidate(); // ratings are part of search results
+        meterRegistry.counter("reviews.writes", "operation", "create").increment();
 
         // Return the newly created review
-        return updatedRestaurant.getReviews().stream()
-                .filter(r -> r.getDatePosted().equals(review.getDatePosted()))
-                .findFirst()
-                .orElseThrow(() -> new RuntimeException("Error retrieving created review"));
+        return review;
     }
 
-    @Override
-    public Page<Review> listReviews(String restaurantId, Pageable pageable) {
-        // Get the restaurant or throw an exception if not found
-        Restaurant restaurant = getRestaurantOrThrow(restaurantId);
-
-        // Create a list of reviews
-        List<Review> reviews = new ArrayList<>(restaurant.getReviews());
-
-        // Get sorting information from the pageable object
-        Sort sort = pageable.getSort();
-        if (sort.isSorted()) {
-            // Get the first sort rule (e.g., "rating", ASC/DESC)
-            Sort.Order order = sort.iterator().next();
-            String property = order.getProperty();
-            boolean isAscending = order.getDirection().isAscending();
-
-            // Choose comparator based on the property
-            Comparator<Review> comparator = switch (property) {
-                case "datePosted" -> Comparator.comparing(Review::getDatePosted);
-                case "rating" -> Comparator.comparing(Review::getRating);
-                default -> Comparator.comparing(Review::getDatePosted);
-            };
-
-            // Sort the list in ascending or descending order
-            reviews.sort(isAscending ? comparator : comparator.reversed());
-        } else {
-            // Default sort: by datePosted in descending order (most recent first)
-            reviews.sort(Comparator.comparing(Review::getDatePosted).reversed());
-        }
-
-        // Calculate the start index for pagination
-        int start = (int) pageable.getOffset();
-
-        // If the start index exceeds list size, return an empty page
-        if (start >= reviews.size()) {
-            return new PageImpl<>(Collections.emptyList(), pageable, reviews.size());
-        }
-
-        // Calculate the end index (start + page size, capped at total size)
-        int end = Math.min(start + pageable.getPageSize(), reviews.size());
-
-        // Return the sublist as a page
-        return new PageImpl<>(reviews.subList(start, end), pageable, reviews.size());
+    // The review id is derived from the restaurant and the author
+    private static String reviewIdFor(String restaurantId, String authorId) {
+        return UUID.nameUUIDFromBytes((restaurantId + ":" + authorId).getBytes(StandardCharsets.UTF_8)).toString();
     }
 
     @Override
-    public Optional<Review> getReview(String restaurantId, String reviewId) {
-        Restaurant restaurant = getRestaurantOrThrow(restaurantId);
-        return getReviewFromRestaurant(reviewId, restaurant);
-    }
+    public Page<Review> listReviews(String restaurantId, Pageable pageable) {
+        // Throw an exception if the restaurant doesn't exist
+        recordReviewCount(ensureRestaurantExists(restaurantId));
 
-    private static Optional<Review> getReviewFromRestaurant(String reviewId, Restaurant restaurant) {
-        return restaurant.getReviews().stream()
-                .filter(r -> reviewId.equals(r.getId()))
-                .findFirst();
+        // Let Elasticsearch sort and paginate the reviews
+        return reviewRepository.findByRestaurantId(
+                restaurantId,
+                PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), toReviewSort(pageable.getSort())));
     }
 
     @Override
-    public Review updateReview(User author, String restaurantId, String reviewId,
-                               ReviewCreateUpdateRequest review) {
+    public ReviewCursorPage listReviewsAfter(String restaurantId, Sort sort, String cursor, int size) {
+        recordReviewCount(ensureRestaurantExists(restaurantId));
 
-        // Get the restaurant or throw if not found
-        Restaurant restaurant = getRestaurantOrThrow(restaurantId);
+        int pageSize = Math.max(1, Math.min(size, MAX_CURSOR_PAGE_SIZE));
 
-        String authorId = author.getId();
+        // The cursor holds the sort values of the last review of the previous page
+        Sort reviewSort = toReviewSort(sort);
+        List<Object> searchAfter = (cursor == null || cursor.isBlank()) ? null : cursorCodec.decode(cursor, reviewSort);
 
-        // Find the review
-        Review existingReview = getReviewFromRestaurant(reviewId, restaurant)
-                .orElseThrow(() -> new ReviewNotAllowedException("Review not found"));
+        List<SearchHit<Review>> hits = reviewRepository
+                .findByRestaurantIdAfter(restaurantId, reviewSort, searchAfter, pageSize)
+                .getSearchHits();
 
-        // Check if the review was written by the current user
-        if (!existingReview.getWrittenBy().getId().equals(authorId)) {
-            throw new ReviewNotAllowedException("Cannot update another user's review");
-        }
+        // A full page means there may be more reviews after the last one
+        String nextCursor = hits.size() == pageSize
+                ? cursorCodec.encode(reviewSort, hits.getLast().getSortValues())
+                : null;
 
-        // Check if it's within 48 hours since the review was posted
-        if (LocalDateTime.now().isAfter(existingReview.getDatePosted().plusHours(48))) {
-            throw new ReviewNotAllowedException("Review can no longer be edited (48-hour limit exceeded)");
-        }
+        return ReviewCursorPage.builder()
+                .reviews(hits.stream().map(SearchHit::getContent).toList())
+                .nextCursor(nextCursor)
+                .build();
+    }
 
-        // Update review content
-        existingReview.setContent(review.getContent());
-        existingReview.setRating(review.getRating());
-        existingReview.setLastEdited(LocalDateTime.now());
+    // Builds the Elasticsearch sort for reviews, e.g. rating then datePosted
+    private static Sort toReviewSort(Sort requested) {
+        // Only keep the sort rules that reviews can be sorted by
+        List<Sort.Order> orders = requested.stream()
+                .filter(order -> SORTABLE_PROPERTIES.contains(order.getProperty()))
+                .toList();
 
-        // Update photos
-        existingReview.setPhotos(review.getPhotoIds().stream()
-                .map(url -> {
-                    Photo photo = new Photo();
-                    photo.setUrl(url);
-                    photo.setUploadDate(LocalDateTime.now());
-                    return photo;
-                }).collect(Collectors.toList()));
+        // Default sort: by datePosted in descending order (most recent first)
+        Sort sort = orders.isEmpty()
+                ? Sort.by(Sort.Direction.DESC, "datePosted")
+                : Sort.by(orders);
 
-        // Update the restaurant's reviews list excluding the old review
-        List<Review> updatedReviews = restaurant.getReviews().stream()
-                .filter(r -> !reviewId.equals(r.getId()))
-                .collect(Collectors.toList());
+        // The review id breaks ties, so that pages are stable and cursors are unique
+        return sort.and(Sort.by(Sort.Direction.ASC, "id"));
+    }
 
-        // Add the updated review back to the list
-        updatedReviews.add(existingReview);
-        restaurant.setReviews(updatedReviews);
+    @Override
+    public Optional<Review> getReview(String restaurantId, String reviewId) {
+        ensureRestaurantExists(restaurantId);
+        return getReviewFromRestaurant(reviewId, restaurantId);
+    }
 
-        // Update the restaurant's average rating
-        updateRestaurantAverageRating(restaurant);
+    private Optional<Review> getReviewFromRestaurant(String reviewId, String restaurantId) {
+        return reviewRepository.findById(reviewId)
+                .filter(r -> restaurantId.equals(r.getRestaurantId()));
+    }
 
-        // Save the restaurant with the updated review
-        restaurantRepository.save(restaurant);
+    @Override
+    @CacheEvict(cacheNames = CacheConfig.RESTAURANTS_CACHE, key = "#restaurantId")
+    public Review updateReview(User author, String restaurantId, String reviewId,
+                               ReviewCreateUpdateRequest review) {
 
-        return existingReview;
+        // Throw if the restaurant is not found
+        ensureRestaurantExists(restaurantId);
+
+        // Re-read and retry if the review was changed concurrently, so the rating delta is never stale
+        return optimisticRetryExecutor.execute("updateReview", () -> {
+            String authorId = author.getId();
+
+            // Find the review
+            Review existingReview = getReviewFromRestaurant(reviewId, restaurantId)
+                    .orElseThrow(() -> new ReviewNotAllowedException("Review not found"));
+
+            // Check if the review was written by the current user
+            if (!existingReview.getWrittenBy().getId().equals(authorId)) {
+                throw new ReviewNotAllowedException("Cannot update another user's review");
+            }
+
+            // Check if it's within 48 hours since the review was posted
+            if (LocalDateTime.now().isAfter(existingReview.getDatePosted().plusHours(48))) {
+                throw new ReviewNotAllowedException("Review can no longer be edited (48-hour limit exceeded)");
+            }
+
+            // Keep the previous rating to adjust the restaurant's aggregate
+            int previousRating = existingReview.getRating();
+
+            // Update review content
+            existingReview.setContent(review.getContent());
+            existingReview.setRating(review.getRating());
+            existingReview.setLastEdited(LocalDateTime.now());
+
+            // Update photos
+            existingReview.setPhotos(review.getPhotoIds().stream()
+                    .map(url -> {
+                        Photo photo = new Photo();
+                        photo.setUrl(url);
+                        photo.setUploadDate(LocalDateTime.now());
+                        return photo;
+                    }).collect(Collectors.toList()));
+
+            // Save only the updated review, conditional on the version that was read
+            Review savedReview = reviewRepository.save(existingReview);
+
+            // Move the review from its previous rating to the new one
+            restaurantRepository.applyRatingChange(restaurantId, savedReview.getRating(), previousRating);
+            restaurantGeoIndex.applyRatingChange(restaurantId, savedReview.getRating(), previousRating);
+            searchResultCache.invalidate();
+            meterRegistry.counter("reviews.writes", "operation", "update").increment();
+
+            return savedReview;
+        });
     }
 
     @Override
+    @CacheEvict(cacheNames = CacheConfig.RESTAURANTS_CACHE, key = "#restaurantId")
     public void deleteReview(User author, String restaurantId, String reviewId) {
-        Restaurant restaurant = getRestaurantOrThrow(restaurantId);
+        ensureRestaurantExists(restaurantId);
 
-        String authorId = author.getId();
+        optimisticRetryExecutor.execute("deleteReview", () -> {
+            String authorId = author.getId();
 
-        Review existingReview = getReviewFromRestaurant(reviewId, restaurant)
-                .orElseThrow(() -> new ReviewNotAllowedException("Review not found"));
-
-        if (!existingReview.getWrittenBy().getId().equals(authorId)) {
-            throw new ReviewNotAllowedException("Cannot delete another user's review");
-        }
+            Review existingReview = getReviewFromRestaurant(reviewId, restaurantId)
+                    .orElseThrow(() -> new ReviewNotAllowedException("Review not found"));
 
-        List<Review> updatedReviews = restaurant.getReviews().stream()
-                .filter(r -> !reviewId.equals(r.getId()))
-                .collect(Collectors.toList());
+            if (!existingReview.getWrittenBy().getId().equals(authorId)) {
+                throw new ReviewNotAllowedException("Cannot delete another user's review");
+            }
 
-        restaurant.setReviews(updatedReviews);
+            // Only delete the version that was read, so the rating is never removed twice
+            reviewRepository.deleteIfUnchanged(existingReview);
 
-        updateRestaurantAverageRating(restaurant);
-
-        restaurantRepository.save(restaurant);
+            restaurantRepository.applyRatingChange(restaurantId, null, existingReview.getRating());
+            restaurantGeoIndex.applyRatingChange(restaurantId, null, existingReview.getRating());
+            searchResultCache.invalidate();
+            meterRegistry.counter("reviews.writes", "operation", "delete").increment();
+        });
     }
 
-    private void updateRestaurantAverageRating(Restaurant restaurant) {
-        double average = restaurant.getReviews().stream()
-                .mapToInt(Review::getRating)
-                .average()
-                .orElse(0.0);
-        restaurant.setAverageRating((float) average);
+    private Restaurant ensureRestaurantExists(String restaurantId) {
+        // Goes through the restaurant cache, so hot restaurants don't hit Elasticsearch
+        return restaurantService.getRestaurant(restaurantId)
+                .orElseThrow(() -> new RestaurantNotFoundException("Restaurant not found with id: " + restaurantId));
     }
 
-    private Restaurant getRestaurantOrThrow(String restaurantId) {
-        return restaurantRepository.findById(restaurantId)
-                .orElseThrow(() -> new RestaurantNotFoundException("Restaurant not found with id: " + restaurantId));
+    // Review count of the restaurants whose reviews are listed, i.e. weighted by how often they are read
+    private void recordReviewCount(Restaurant restaurant) {
+        if (restaurant.getReviewCount() != null) {
+            DistributionSummary.builder("restaurant.reviews")
+                    .maximumExpectedValue(100_000.0)
+                    .register(meterRegistry)
+                    .record(restaurant.getReviewCount());
+        }
     }
 }
@@ -0,0 +1,109 @@
+package com.bh.restaurant.services.impl;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+import java.util.function.Predicate;
+import java.util.zip.CRC32;
+
+// Two-level fan-out directory layout for stored files: "<dir>/3f/a2/<name>".
+// The prefix comes from a hash of the name, so files spread evenly over 65536 directories
+// whatever the naming scheme. Files of the older flat layout ("<dir>/<name>") are still found.
+@Slf4j
+public final class ShardedLayout {
+
+    private ShardedLayout() {
+    }
+
+    // A name must be a single, plain path segment
+    public static boolean isValidName(String name) {
+        return name != null
+                && !name.isEmpty()
+                && !name.equals(".")
+                && !name.equals("..")
+                && name.indexOf('/') < 0
+                && name.indexOf('\\') < 0
+                && name.indexOf('\0') < 0;
+    }
+
+    // Sharded location of a file, whether it exists or not
+    public static Path resolve(Path directory, String name) {
+        if (!isValidName(name)) {
+            throw new IllegalArgumentException("Invalid file name: " + name);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(name.getBytes(StandardCharsets.UTF_8));
+        String hash = String.format("%08x", crc.getValue());
+        return directory.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(name);
+    }
+
+    // Finds an existing file in the sharded or the flat layout
+    public static Optional<Path> locate(Path directory, String name) {
+        if (!isValidName(name)) {
+            return Optional.empty();
+        }
+        Path sharded = resolve(directory, name);
+        if (isReadableFile(sharded)) {
+            return Optional.of(sharded);
+        }
+        Path flat = directory.resolve(name);
+        if (isReadableFile(flat)) {
+            return Optional.of(flat);
+        }
+        // The migration may have moved the file between the two checks
+        return isReadableFile(sharded) ? Optional.of(sharded) : Optional.empty();
+    }
+
+    // Directories (shards, "blobs", ...) are readable too, but never a stored file
+    private static boolean isReadableFile(Path path) {
+        return Files.isRegularFile(path) && Files.isReadable(path);
+    }
+
+    // Moves the flat files of a directory into the sharded layout, one file at a time, so every
+    // file stays readable while the migration runs. Returns the number of moved files.
+    public static int migrate(Path directory, Predicate<Path> skip) throws IOException {
+        int moved = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, Files::isRegularFile)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.startsWith(".") || skip.test(file)) {
+                    continue; // temporary files of writes in progress, index files
+                }
+                Path target = resolve(directory, name);
+                Files.createDirectories(target.getParent());
+                try {
+                    moveIfAbsent(file, target);
+                    moved++;
+                } catch (FileAlreadyExistsException e) {
+                    // The sharded copy is the one being served, the flat file is left for inspection
+                    log.warn("Not migrating {}, {} already exists", file, target);
+                }
+            }
+        }
+        return moved;
+    }
+
+    // An atomic rename replaces an existing target on POSIX file systems. A hard link fails when
+    // the target exists instead, and the file is readable under one of the two names throughout.
+    private static void moveIfAbsent(Path file, Path target) throws IOException {
+        try {
+            Files.createLink(target, file);
+        } catch (UnsupportedOperationException e) {
+            // No hard links on this file system; only a file stored between the check and the
+            // rename can still be replaced
+            if (Files.exists(target)) {
+                throw new FileAlreadyExistsException(target.toString());
+            }
+            Files.move(file, target, StandardCopyOption.ATOMIC_MOVE);
+            return;
+        }
+        Files.delete(file);
+    }
+}
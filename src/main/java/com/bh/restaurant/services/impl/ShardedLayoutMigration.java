@@ -0,0 +1,48 @@
+package com.bh.restaurant.services.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+// Moves files of the flat uploads layout into the sharded one (see ShardedLayout).
+// Enabled with app.storage.migrate-flat-layout=true; it runs in the background after startup
+// while the application keeps serving from both layouts. Safe to run repeatedly.
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "app.storage.migrate-flat-layout", havingValue = "true")
+public class ShardedLayoutMigration implements ApplicationRunner {
+
+    @Value("${app.storage.location:uploads}")
+    private String storageLocation;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        Thread.ofPlatform()
+                .name("storage-migration")
+                .daemon(true)
+                .start(this::migrate);
+    }
+
+    public void migrate() {
+        Path rootLocation = Paths.get(storageLocation).toAbsolutePath().normalize();
+        Path blobsLocation = rootLocation.resolve(ContentAddressedStorageService.BLOBS_DIRECTORY);
+        try {
+            int moved = ShardedLayout.migrate(rootLocation,
+                    file -> file.getFileName().toString().equals(ContentAddressedStorageService.INDEX_FILE));
+            if (Files.isDirectory(blobsLocation)) {
+                moved += ShardedLayout.migrate(blobsLocation, file -> false);
+            }
+            log.info("Moved {} files to the sharded storage layout", moved);
+        } catch (IOException e) {
+            log.error("Storage layout migration failed, it can be restarted safely", e);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.bh.restaurant.services.impl;
+
+import com.bh.restaurant.config.AsyncConfig;
+import com.bh.restaurant.services.StorageService;
+import com.bh.restaurant.services.ThumbnailService;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+@Service
+@Slf4j
+public class ThumbnailServiceImpl implements ThumbnailService {
+
+    private final StorageService storageService;
+    private final List<Integer> widths;
+    private final long maxPixels;
+
+    public ThumbnailServiceImpl(
+            StorageService storageService,
+            @Value("${app.photos.thumbnails.widths:200,400,800}") List<Integer> widths,
+            @Value("${app.photos.thumbnails.max-pixels:40000000}") long maxPixels) {
+        this.storageService = storageService;
+        this.widths = widths.stream().sorted().toList();
+        this.maxPixels = maxPixels;
+    }
+
+    @PostConstruct
+    public void init() {
+        // Decode in memory instead of through temporary files
+        ImageIO.setUseCache(false);
+    }
+
+    @Override
+    @Async(AsyncConfig.THUMBNAIL_EXECUTOR)
+    public void generateThumbnails(String photoId) {
+        String format = outputFormat(photoId);
+        if (format == null) {
+            log.debug("No thumbnails for unsupported image format: {}", photoId);
+            return;
+        }
+
+        Optional<Resource> original = storageService.loadAsResource(photoId);
+        if (original.isEmpty()) {
+            log.warn("Cannot generate thumbnails, photo not found: {}", photoId);
+            return;
+        }
+
+        try {
+            BufferedImage image;
+            try (InputStream inputStream = original.get().getInputStream()) {
+                image = read(inputStream, photoId);
+            }
+            if (image == null) {
+                return;
+            }
+
+            for (int width : widths) {
+                // Only scale down, larger sizes are served by the original
+                if (width >= image.getWidth()) {
+                    break;
+                }
+                byte[] thumbnail = encode(resize(image, width, format), format);
+                storageService.store(new ByteArrayInputStream(thumbnail), thumbnailId(photoId, width));
+            }
+        } catch (IOException e) {
+            log.warn("Failed to generate thumbnails for photo: " + photoId, e);
+        }
+    }
+
+    // Checks the dimensions in the image header before decoding: a small file can declare a huge
+    // image ("decompression bomb"), decoding it would take width x height x 4 bytes of heap.
+    // Returns null, after logging why, when the image is unreadable or too large.
+    private BufferedImage read(InputStream inputStream, String photoId) throws IOException {
+        try (ImageInputStream imageInput = ImageIO.createImageInputStream(inputStream)) {
+            Iterator<ImageReader> readers = imageInput == null ? null : ImageIO.getImageReaders(imageInput);
+            if (readers == null || !readers.hasNext()) {
+                log.warn("Cannot generate thumbnails, photo is not a readable image: {}", photoId);
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(imageInput, true, true);
+                long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+                if (pixels > maxPixels) {
+                    log.warn("Cannot generate thumbnails, photo {} is {}x{} pixels, more than {}",
+                            photoId, reader.getWidth(0), reader.getHeight(0), maxPixels);
+                    return null;
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    @Override
+    public List<Integer> getWidths() {
+        return widths;
+    }
+
+    @Override
+    public String thumbnailId(String photoId, int width) {
+        String extension = StringUtils.getFilenameExtension(photoId);
+        String baseName = StringUtils.stripFilenameExtension(photoId);
+        return extension == null
+                ? baseName + "-" + width + "w"
+                : baseName + "-" + width + "w." + extension;
+    }
+
+    // Keep the format of the original, only formats ImageIO can write are supported
+    private static String outputFormat(String photoId) {
+        String extension = StringUtils.getFilenameExtension(photoId);
+        if (extension == null) {
+            return null;
+        }
+        return switch (extension.toLowerCase(Locale.ROOT)) {
+            case "jpg", "jpeg" -> "jpg";
+            case "png" -> "png";
+            case "gif" -> "gif";
+            case "bmp" -> "bmp";
+            default -> null;
+        };
+    }
+
+    private static BufferedImage resize(BufferedImage image, int width, String format) {
+        int height = Math.max(1, Math.round((float) image.getHeight() * width / image.getWidth()));
+        // JPEG has no alpha channel
+        int type = "jpg".equals(format) ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB;
+
+        BufferedImage resized = new BufferedImage(width, height, type);
+        Graphics2D graphics = resized.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return resized;
+    }
+
+    private static byte[] encode(BufferedImage image, String format) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        if (!ImageIO.write(image, format, outputStream)) {
+            throw new IOException("No image writer for format: " + format);
+        }
+        return outputStream.toByteArray();
+    }
+}
@@ -0,0 +1,46 @@
+package com.bh.restaurant.support;
+
+import com.bh.restaurant.domain.entities.Address;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+// Canonical form of an address for comparisons and as a geocoding cache key, so that
+// " 12  High St. " and "12 high st" are the same address.
+public final class AddressNormalizer {
+
+    private static final Pattern PUNCTUATION = Pattern.compile("[.,;:#'\"]");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private AddressNormalizer() {
+    }
+
+    // The unit is left out: all units of a building (food halls, malls) share one location
+    public static String canonicalKey(Address address) {
+        if (address == null) {
+            return null;
+        }
+        return String.join("|",
+                normalize(address.getStreetNumber()),
+                normalize(address.getStreetName()),
+                normalize(address.getCity()),
+                normalize(address.getState()),
+                normalize(address.getPostalCode()).replace(" ", ""),
+                normalize(address.getCountry()));
+    }
+
+    public static boolean sameLocation(Address first, Address second) {
+        String firstKey = canonicalKey(first);
+        return firstKey != null && firstKey.equals(canonicalKey(second));
+    }
+
+    private static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        String normalized = Normalizer.normalize(value, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+        normalized = PUNCTUATION.matcher(normalized).replaceAll(" ");
+        return WHITESPACE.matcher(normalized).replaceAll(" ").trim();
+    }
+}
@@ -0,0 +1,72 @@
+package com.bh.restaurant.support;
+
+import com.bh.restaurant.exceptions.BulkheadFullException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+// Caps the number of concurrent calls to one dependency (Elasticsearch, storage, ...).
+// With virtual threads there is no thread pool limit any more, the semaphore is what keeps a
+// slow dependency from piling up unbounded work, and from starving the other dependencies.
+public class Bulkhead {
+
+    @FunctionalInterface
+    public interface Call<T> {
+        T call() throws Throwable;
+    }
+
+    private final String name;
+    private final Semaphore permits;
+    private final Duration maxWait;
+    private final Timer waitTimer;
+    private final Counter rejections;
+
+    public Bulkhead(String name, int maxConcurrentCalls, Duration maxWait, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.permits = new Semaphore(maxConcurrentCalls, true); // fair: callers are served in arrival order
+        this.maxWait = maxWait;
+        this.waitTimer = Timer.builder("bulkhead.wait")
+                .description("Time spent waiting for a permit")
+                .tag("bulkhead", name)
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.rejections = Counter.builder("bulkhead.rejections")
+                .description("Calls rejected because no permit became available in time")
+                .tag("bulkhead", name)
+                .register(meterRegistry);
+        Gauge.builder("bulkhead.available.permits", permits, Semaphore::availablePermits)
+                .tag("bulkhead", name)
+                .register(meterRegistry);
+        Gauge.builder("bulkhead.queued", permits, Semaphore::getQueueLength)
+                .tag("bulkhead", name)
+                .register(meterRegistry);
+    }
+
+    public <T> T execute(Call<T> call) throws Throwable {
+        long start = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(maxWait.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BulkheadFullException("Interrupted while waiting for bulkhead: " + name, e);
+        } finally {
+            waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+
+        if (!acquired) {
+            rejections.increment();
+            throw new BulkheadFullException("Bulkhead " + name + " is full");
+        }
+        try {
+            return call.call();
+        } finally {
+            permits.release();
+        }
+    }
+}
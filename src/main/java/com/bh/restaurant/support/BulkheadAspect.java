@@ -0,0 +1,42 @@
+package com.bh.restaurant.support;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+// Runs every call to a dependency inside its bulkhead.
+// All Elasticsearch access goes through the Spring Data repositories, all disk access through StorageService.
+// Storage calls only read local data: multipart uploads are buffered by the multipart resolver and
+// streamed uploads are spooled by PhotoServiceImpl before store is called, so no permit is held
+// while a client is still sending.
+@Aspect
+@Component
+public class BulkheadAspect {
+
+    private final Bulkhead elasticsearchBulkhead;
+    private final Bulkhead storageBulkhead;
+
+    public BulkheadAspect(
+            @Value("${app.bulkhead.elasticsearch.max-concurrent-calls:64}") int elasticsearchMaxConcurrentCalls,
+            @Value("${app.bulkhead.storage.max-concurrent-calls:32}") int storageMaxConcurrentCalls,
+            @Value("${app.bulkhead.max-wait:2s}") Duration maxWait,
+            MeterRegistry meterRegistry) {
+        this.elasticsearchBulkhead = new Bulkhead("elasticsearch", elasticsearchMaxConcurrentCalls, maxWait, meterRegistry);
+        this.storageBulkhead = new Bulkhead("storage", storageMaxConcurrentCalls, maxWait, meterRegistry);
+    }
+
+    @Around("execution(* org.springframework.data.repository.Repository+.*(..))")
+    public Object aroundRepository(ProceedingJoinPoint joinPoint) throws Throwable {
+        return elasticsearchBulkhead.execute(joinPoint::proceed);
+    }
+
+    @Around("execution(* com.bh.restaurant.services.StorageService+.*(..))")
+    public Object aroundStorage(ProceedingJoinPoint joinPoint) throws Throwable {
+        return storageBulkhead.execute(joinPoint::proceed);
+    }
+}
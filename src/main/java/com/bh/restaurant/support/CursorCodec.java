@@ -0,0 +1,57 @@
+package com.bh.restaurant.support;
+
+import com.bh.restaurant.exceptions.InvalidCursorException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import java.util.Base64;
+import java.util.List;
+
+// Turns the sort values of the last hit of a page (search_after) into an opaque, URL-safe cursor and back.
+// The cursor also holds the sort it was created with: search_after values only make sense for that sort,
+// so a cursor used with another sort is rejected.
+@Component
+@RequiredArgsConstructor
+public class CursorCodec {
+
+    private final ObjectMapper objectMapper;
+
+    public String encode(Sort sort, List<Object> sortValues) {
+        try {
+            return Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString(objectMapper.writeValueAsBytes(new Cursor(describe(sort), sortValues)));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not encode cursor", e);
+        }
+    }
+
+    // Returns the sort values of the cursor, which must have been created with the same sort
+    public List<Object> decode(String cursor, Sort sort) {
+        Cursor decoded;
+        try {
+            decoded = objectMapper.readValue(Base64.getUrlDecoder().decode(cursor), Cursor.class);
+        } catch (Exception e) {
+            throw new InvalidCursorException("Invalid cursor: " + cursor, e);
+        }
+        if (decoded.sort() == null || decoded.after() == null || decoded.after().size() != decoded.sort().size()) {
+            throw new InvalidCursorException("Invalid cursor: " + cursor);
+        }
+        if (!decoded.sort().equals(describe(sort))) {
+            throw new InvalidCursorException("Cursor was created for a different sort: " + String.join(",", decoded.sort()));
+        }
+        return decoded.after();
+    }
+
+    // e.g. ["rating:DESC", "id:ASC"]
+    private static List<String> describe(Sort sort) {
+        return sort.stream()
+                .map(order -> order.getProperty() + ":" + order.getDirection())
+                .toList();
+    }
+
+    private record Cursor(List<String> sort, List<Object> after) {
+    }
+}
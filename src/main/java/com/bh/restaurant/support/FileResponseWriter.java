@@ -0,0 +1,151 @@
+package com.bh.restaurant.support;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Writes files to the response, with sendfile(2) where the connector supports it.
+// Supports conditional requests (ETag / Last-Modified), single byte ranges and HEAD.
+@Component
+public class FileResponseWriter {
+
+    // Request attributes of Tomcat's sendfile support, the connector then writes the file with sendfile(2)
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    // Media type by file extension, so the lookup is done once per extension
+    private final Map<String, MediaType> mediaTypes = new ConcurrentHashMap<>();
+
+    private final DistributionSummary servedBytes;
+
+    public FileResponseWriter(MeterRegistry meterRegistry) {
+        // Bytes of every response body, i.e. the requested range; 304s and HEAD requests send none
+        this.servedBytes = DistributionSummary.builder("photos.served.bytes")
+                .baseUnit("bytes")
+                .minimumExpectedValue(1024.0)
+                .maximumExpectedValue(16.0 * 1024 * 1024)
+                .register(meterRegistry);
+    }
+
+    public void write(Resource resource, CacheControl cacheControl,
+                      HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Path file = resource.getFile().toPath();
+        long length = Files.size(file);
+        long lastModified = Files.getLastModifiedTime(file).toMillis();
+        String eTag = "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
+
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl.getHeaderValue());
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        // Sets ETag and Last-Modified, and the 304 status when the client's copy is current
+        if (new ServletWebRequest(request, response).checkNotModified(eTag, lastModified)) {
+            return;
+        }
+
+        response.setContentType(mediaType(file).toString());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "inline");
+
+        long start = 0;
+        long end = length - 1;
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader != null && ifRangeMatches(request, eTag, lastModified)) {
+            List<HttpRange> ranges;
+            try {
+                ranges = HttpRange.parseRanges(rangeHeader);
+            } catch (IllegalArgumentException e) {
+                sendRangeNotSatisfiable(response, length);
+                return;
+            }
+            // Multiple ranges are rare for images, the whole file is sent instead
+            if (ranges.size() == 1) {
+                start = ranges.getFirst().getRangeStart(length);
+                end = ranges.getFirst().getRangeEnd(length);
+                if (start >= length || start > end) {
+                    sendRangeNotSatisfiable(response, length);
+                    return;
+                }
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            }
+        }
+
+        long count = end - start + 1;
+        response.setContentLengthLong(count);
+        if (HttpMethod.HEAD.matches(request.getMethod()) || count == 0) {
+            return;
+        }
+        servedBytes.record(count);
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1); // exclusive
+            return;
+        }
+
+        // No sendfile (e.g. TLS or another container). The servlet stream only takes byte arrays,
+        // so the channel adapter copies the range through its own small heap buffer
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            while (position <= end) {
+                position += channel.transferTo(position, end + 1 - position, out);
+            }
+        }
+    }
+
+    // A range is only honoured when If-Range is absent or still matches the file
+    private static boolean ifRangeMatches(HttpServletRequest request, String eTag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(eTag);
+        }
+        try {
+            return request.getDateHeader(HttpHeaders.IF_RANGE) / 1000 == lastModified / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static void sendRangeNotSatisfiable(HttpServletResponse response, long length) {
+        response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+        response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+        response.setContentLengthLong(0);
+    }
+
+    private MediaType mediaType(Path file) {
+        String extension = StringUtils.getFilenameExtension(file.getFileName().toString());
+        String key = extension == null ? "" : extension.toLowerCase(Locale.ROOT);
+        return mediaTypes.computeIfAbsent(key, ext -> MediaTypeFactory
+                .getMediaType("file." + ext) // Detect the media type (e.g., image/jpeg, image/png)
+                .orElse(MediaType.APPLICATION_OCTET_STREAM)); // Fallback to application/octet-stream if not found
+    }
+}
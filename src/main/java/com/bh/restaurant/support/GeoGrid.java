@@ -0,0 +1,298 @@
+package com.bh.restaurant.support;
+
+import com.bh.restaurant.domain.RestaurantSearchResult;
+import com.bh.restaurant.domain.entities.Restaurant;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+// Uniform lat/lon grid of restaurant locations, answering radius and nearest-k queries with
+// the same haversine distance as Elasticsearch. Slot based storage: restaurant i has its
+// coordinates in latitudes[i] / longitudes[i], each grid cell lists the slots of the restaurants
+// inside it. Not thread safe, callers guard it with a lock.
+public final class GeoGrid {
+
+    // Same mean earth radius as Elasticsearch's arc distance, so distances match
+    private static final double EARTH_RADIUS_KM = 6371.0087714;
+    private static final double KM_PER_DEGREE = Math.PI * EARTH_RADIUS_KM / 180;
+
+    private final double cellSize;
+    private final int rows;
+    private final int columns;
+
+    private double[] latitudes = new double[1024];
+    private double[] longitudes = new double[1024];
+    private float[] ratings = new float[1024];
+    private Restaurant[] summaries = new Restaurant[1024];
+    private int highWaterMark; // slots above are unused
+    private int[] freeSlots = new int[64];
+    private int freeCount;
+
+    private final Map<String, Integer> slotsById = new HashMap<>();
+    private final Map<Long, IntList> cells = new HashMap<>();
+
+    public GeoGrid(double cellSize) {
+        this.cellSize = cellSize;
+        this.rows = (int) Math.ceil(180 / cellSize);
+        this.columns = (int) Math.ceil(360 / cellSize);
+    }
+
+    public int count() {
+        return slotsById.size();
+    }
+
+    public int count(float minRating) {
+        int count = 0;
+        for (int slot = 0; slot < highWaterMark; slot++) {
+            if (summaries[slot] != null && ratings[slot] >= minRating) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public Restaurant get(String id) {
+        Integer slot = slotsById.get(id);
+        return slot == null ? null : summaries[slot];
+    }
+
+    public void put(Restaurant restaurant) {
+        if (restaurant.getId() == null || restaurant.getGeoLocation() == null) {
+            return;
+        }
+        remove(restaurant.getId());
+
+        int slot = allocateSlot();
+        double latitude = restaurant.getGeoLocation().getLat();
+        double longitude = restaurant.getGeoLocation().getLon();
+        latitudes[slot] = latitude;
+        longitudes[slot] = longitude;
+        ratings[slot] = restaurant.getAverageRating() == null ? 0f : restaurant.getAverageRating();
+        summaries[slot] = restaurant;
+        slotsById.put(restaurant.getId(), slot);
+        cells.computeIfAbsent(cellKey(row(latitude), column(longitude)), key -> new IntList()).add(slot);
+    }
+
+    public void remove(String id) {
+        Integer slot = slotsById.remove(id);
+        if (slot == null) {
+            return;
+        }
+        long key = cellKey(row(latitudes[slot]), column(longitudes[slot]));
+        IntList cell = cells.get(key);
+        cell.remove(slot);
+        if (cell.size == 0) {
+            cells.remove(key);
+        }
+        summaries[slot] = null;
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+        }
+        freeSlots[freeCount++] = slot;
+    }
+
+    public List<RestaurantSearchResult> withinRadius(double latitude, double longitude, double radiusKm, float minRating) {
+        List<Hit> hits = new ArrayList<>();
+        double latitudeDelta = radiusKm / KM_PER_DEGREE;
+        double maxLatitude = Math.min(90, Math.abs(latitude) + latitudeDelta);
+        double longitudeDelta = maxLatitude >= 90
+                ? 360
+                : radiusKm / (KM_PER_DEGREE * Math.cos(Math.toRadians(maxLatitude)));
+
+        int fromRow = row(latitude - latitudeDelta);
+        int toRow = row(latitude + latitudeDelta);
+        int fromColumn = column(longitude - longitudeDelta);
+        int toColumn = column(longitude + longitudeDelta);
+        long cellsInRange = (long) (toRow - fromRow + 1) * (toColumn - fromColumn + 1);
+
+        // Large radii, or ones crossing the antimeridian: visiting every occupied cell is cheaper
+        if (longitudeDelta >= 180 || longitude - longitudeDelta < -180 || longitude + longitudeDelta > 180
+                || cellsInRange > cells.size()) {
+            for (IntList cell : cells.values()) {
+                collectWithin(cell, latitude, longitude, radiusKm, minRating, hits);
+            }
+        } else {
+            for (int row = fromRow; row <= toRow; row++) {
+                for (int column = fromColumn; column <= toColumn; column++) {
+                    IntList cell = cells.get(cellKey(row, column));
+                    if (cell != null) {
+                        collectWithin(cell, latitude, longitude, radiusKm, minRating, hits);
+                    }
+                }
+            }
+        }
+
+        hits.sort(Comparator.comparingDouble(Hit::distanceKm));
+        return toResults(hits);
+    }
+
+    // Visits rings of cells around the origin until no unvisited cell can hold a closer restaurant
+    public List<RestaurantSearchResult> nearest(double latitude, double longitude, int k, float minRating) {
+        if (k <= 0) {
+            return List.of();
+        }
+        // Max-heap of the k closest restaurants found so far
+        PriorityQueue<Hit> closest = new PriorityQueue<>(Comparator.comparingDouble(Hit::distanceKm).reversed());
+        int centerRow = row(latitude);
+        int centerColumn = column(longitude);
+        int maxRing = Math.max(rows, columns);
+        int visitedRestaurants = 0;
+
+        for (int ring = 0; ring <= maxRing && visitedRestaurants < count(); ring++) {
+            // Columns wrap around the antimeridian. Once the ring is as wide as the grid,
+            // every column of the inner rows has been visited already.
+            boolean wrapsAround = 2 * ring + 1 > columns;
+            for (int row = centerRow - ring; row <= centerRow + ring; row++) {
+                if (row < 0 || row >= rows) {
+                    continue;
+                }
+                boolean edgeRow = row == centerRow - ring || row == centerRow + ring;
+                int[] ringColumns;
+                if (edgeRow) {
+                    ringColumns = wrapsAround ? allColumns() : columnRange(centerColumn - ring, centerColumn + ring);
+                } else if (2 * ring < columns) {
+                    ringColumns = new int[]{centerColumn - ring, centerColumn + ring};
+                } else if (2 * ring == columns) {
+                    ringColumns = new int[]{centerColumn + ring}; // the same column as centerColumn - ring
+                } else {
+                    ringColumns = new int[0];
+                }
+                for (int column : ringColumns) {
+                    IntList cell = cells.get(cellKey(row, Math.floorMod(column, columns)));
+                    if (cell == null) {
+                        continue;
+                    }
+                    visitedRestaurants += cell.size;
+                    for (int i = 0; i < cell.size; i++) {
+                        int slot = cell.values[i];
+                        if (ratings[slot] < minRating) {
+                            continue;
+                        }
+                        double distance = distanceKm(latitude, longitude, latitudes[slot], longitudes[slot]);
+                        if (closest.size() < k) {
+                            closest.add(new Hit(slot, distance));
+                        } else if (distance < closest.peek().distanceKm()) {
+                            closest.poll();
+                            closest.add(new Hit(slot, distance));
+                        }
+                    }
+                }
+            }
+
+            // Unvisited cells are at least `ring` cells away in every direction
+            if (closest.size() == k && closest.peek().distanceKm() <= ring * minCellSideKm(latitude, ring)) {
+                break;
+            }
+        }
+
+        List<Hit> hits = new ArrayList<>(closest);
+        hits.sort(Comparator.comparingDouble(Hit::distanceKm));
+        return toResults(hits);
+    }
+
+    // Haversine distance, as used by Elasticsearch for arc distances
+    public static double distanceKm(double latitude1, double longitude1, double latitude2, double longitude2) {
+        double dLat = Math.toRadians(latitude2 - latitude1);
+        double dLon = Math.toRadians(longitude2 - longitude1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(latitude1)) * Math.cos(Math.toRadians(latitude2))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    private int[] allColumns() {
+        return columnRange(0, columns - 1);
+    }
+
+    private static int[] columnRange(int from, int to) {
+        int[] range = new int[to - from + 1];
+        for (int i = 0; i < range.length; i++) {
+            range[i] = from + i;
+        }
+        return range;
+    }
+
+    // The shortest side of the cells within `ring` cells of the latitude: east-west sides shrink towards the poles
+    private double minCellSideKm(double latitude, int ring) {
+        double farthestLatitude = Math.min(90, Math.abs(latitude) + (ring + 1) * cellSize);
+        return cellSize * KM_PER_DEGREE * Math.cos(Math.toRadians(farthestLatitude));
+    }
+
+    private void collectWithin(IntList cell, double latitude, double longitude, double radiusKm,
+                               float minRating, List<Hit> hits) {
+        for (int i = 0; i < cell.size; i++) {
+            int slot = cell.values[i];
+            if (ratings[slot] < minRating) {
+                continue;
+            }
+            double distance = distanceKm(latitude, longitude, latitudes[slot], longitudes[slot]);
+            if (distance <= radiusKm) {
+                hits.add(new Hit(slot, distance));
+            }
+        }
+    }
+
+    private List<RestaurantSearchResult> toResults(List<Hit> hits) {
+        List<RestaurantSearchResult> results = new ArrayList<>(hits.size());
+        for (Hit hit : hits) {
+            results.add(new RestaurantSearchResult(summaries[hit.slot()], hit.distanceKm()));
+        }
+        return results;
+    }
+
+    private int allocateSlot() {
+        if (freeCount > 0) {
+            return freeSlots[--freeCount];
+        }
+        if (highWaterMark == latitudes.length) {
+            int capacity = latitudes.length * 2;
+            latitudes = Arrays.copyOf(latitudes, capacity);
+            longitudes = Arrays.copyOf(longitudes, capacity);
+            ratings = Arrays.copyOf(ratings, capacity);
+            summaries = Arrays.copyOf(summaries, capacity);
+        }
+        return highWaterMark++;
+    }
+
+    private int row(double latitude) {
+        return Math.clamp((long) Math.floor((latitude + 90) / cellSize), 0, rows - 1);
+    }
+
+    private int column(double longitude) {
+        return Math.clamp((long) Math.floor((longitude + 180) / cellSize), 0, columns - 1);
+    }
+
+    private static long cellKey(int row, int column) {
+        return ((long) row << 32) | column;
+    }
+
+    private record Hit(int slot, double distanceKm) {
+    }
+
+    // Growable int array, avoids boxing the slot numbers of a cell
+    private static final class IntList {
+        private int[] values = new int[8];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void remove(int value) {
+            for (int i = 0; i < size; i++) {
+                if (values[i] == value) {
+                    values[i] = values[--size]; // order within a cell doesn't matter
+                    return;
+                }
+            }
+        }
+    }
+}
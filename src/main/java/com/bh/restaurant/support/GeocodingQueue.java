@@ -0,0 +1,292 @@
+package com.bh.restaurant.support;
+
+import com.bh.restaurant.config.CacheConfig;
+import com.bh.restaurant.domain.GeoLocation;
+import com.bh.restaurant.domain.entities.Restaurant;
+import com.bh.restaurant.repositories.RestaurantRepository;
+import com.bh.restaurant.services.GeoLocationService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.elasticsearch.core.geo.GeoPoint;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+// Geocodes restaurants in the background when app.geocoding.async.enabled is set. Restaurants are
+// saved with geoLocationPending=true and queued by id; a single worker takes whatever is queued
+// (up to batch-size), reads the restaurants with one multi-get, geocodes the pending ones in
+// parallel and patches their location with one _bulk request. Failures are retried with
+// exponential backoff. The pending flag is stored in Elasticsearch, so restaurants that were
+// queued when the application stopped, or that ran out of attempts, are queued again by a
+// periodic scan.
+@Component
+@Slf4j
+public class GeocodingQueue {
+
+    private final GeoLocationService geoLocationService;
+    private final RestaurantRepository restaurantRepository;
+    private final RestaurantGeoIndex restaurantGeoIndex;
+    private final SearchResultCache searchResultCache;
+    private final Cache restaurantsCache;
+    private final boolean enabled;
+    private final int capacity;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration retryBackoff;
+
+    private final DelayQueue<Task> queue = new DelayQueue<>();
+    // Every queued or in-progress restaurant id with the time it was queued, also used to skip duplicates
+    private final Map<String, Long> queuedSince = new ConcurrentHashMap<>();
+
+    private final Timer lag;
+    private final Counter rejections;
+    private final Counter retries;
+    private final Counter failures;
+
+    private volatile Thread worker;
+
+    public GeocodingQueue(
+            GeoLocationService geoLocationService,
+            RestaurantRepository restaurantRepository,
+            RestaurantGeoIndex restaurantGeoIndex,
+            SearchResultCache searchResultCache,
+            CacheManager cacheManager,
+            MeterRegistry meterRegistry,
+            @Value("${app.geocoding.async.enabled:false}") boolean enabled,
+            @Value("${app.geocoding.async.queue-capacity:10000}") int capacity,
+            @Value("${app.geocoding.async.batch-size:50}") int batchSize,
+            @Value("${app.geocoding.async.max-attempts:5}") int maxAttempts,
+            @Value("${app.geocoding.async.retry-backoff:1s}") Duration retryBackoff) {
+        this.geoLocationService = geoLocationService;
+        this.restaurantRepository = restaurantRepository;
+        this.restaurantGeoIndex = restaurantGeoIndex;
+        this.searchResultCache = searchResultCache;
+        this.restaurantsCache = cacheManager.getCache(CacheConfig.RESTAURANTS_CACHE);
+        this.enabled = enabled;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoff = retryBackoff;
+
+        Gauge.builder("geocoding.queue.depth", queuedSince, Map::size)
+                .description("Restaurants waiting for background geocoding")
+                .register(meterRegistry);
+        Gauge.builder("geocoding.queue.oldest.age", this, GeocodingQueue::oldestAgeSeconds)
+                .description("Time the longest waiting restaurant has been queued")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        this.lag = Timer.builder("geocoding.queue.lag")
+                .description("Time from queuing a restaurant until its location is saved")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.rejections = Counter.builder("geocoding.queue.rejections")
+                .description("Restaurants not queued because the queue was full")
+                .register(meterRegistry);
+        this.retries = Counter.builder("geocoding.queue.retries").register(meterRegistry);
+        this.failures = Counter.builder("geocoding.queue.failures")
+                .description("Restaurants given up on after max-attempts, left for the next scan")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!enabled) {
+            return;
+        }
+        worker = Thread.ofVirtual().name("geocoding-queue").start(() -> {
+            enqueuePending();
+            run();
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        Thread current = worker;
+        if (current != null) {
+            current.interrupt();
+        }
+    }
+
+    // Callers geocode on the request thread instead when this is false
+    public boolean isAccepting() {
+        return enabled && queuedSince.size() < capacity;
+    }
+
+    // Returns false when the restaurant wasn't queued; it stays pending and is queued by the next scan
+    public boolean submit(String restaurantId) {
+        if (!isAccepting()) {
+            rejections.increment();
+            return false;
+        }
+        if (queuedSince.putIfAbsent(restaurantId, System.nanoTime()) == null) {
+            queue.add(new Task(restaurantId, 1, System.nanoTime()));
+        }
+        return true;
+    }
+
+    @Scheduled(
+            initialDelayString = "${app.geocoding.async.rescan-interval:5m}",
+            fixedDelayString = "${app.geocoding.async.rescan-interval:5m}")
+    public void enqueuePending() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            int free = capacity - queuedSince.size();
+            if (free <= 0) {
+                return;
+            }
+            List<Restaurant> pending = restaurantRepository
+                    .findByGeoLocationPendingTrue(PageRequest.of(0, free))
+                    .getContent();
+            pending.forEach(restaurant -> submit(restaurant.getId()));
+            if (!pending.isEmpty()) {
+                log.info("Queued {} restaurants with a pending location", pending.size());
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not scan for restaurants with a pending location", e);
+        }
+    }
+
+    private void run() {
+        List<Task> batch = new ArrayList<>(batchSize);
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                // No waiting for a batch to fill up: under load, restaurants queued while the
+                // previous batch was processed form the next one
+                batch.add(queue.take());
+                queue.drainTo(batch, batchSize - 1);
+                process(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                log.warn("Background geocoding of {} restaurants failed", batch.size(), e);
+                batch.forEach(this::retry);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void process(List<Task> batch) throws InterruptedException {
+        Map<String, Task> tasks = new HashMap<>();
+        batch.forEach(task -> tasks.put(task.restaurantId(), task));
+
+        // The current version of each restaurant: the latest address is geocoded, and the
+        // update below is conditional on this version
+        List<Restaurant> pending = new ArrayList<>();
+        Map<String, Restaurant> found = new HashMap<>();
+        restaurantRepository.findAllById(tasks.keySet()).forEach(restaurant -> found.put(restaurant.getId(), restaurant));
+        for (Task task : batch) {
+            Restaurant restaurant = found.get(task.restaurantId());
+            if (restaurant != null && Boolean.TRUE.equals(restaurant.getGeoLocationPending())) {
+                pending.add(restaurant);
+            } else {
+                // Deleted, or resolved elsewhere (another instance, or a synchronous update)
+                complete(task);
+            }
+        }
+
+        List<Restaurant> resolved = new ArrayList<>(pending.size());
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<GeoLocation>> geoLocations = pending.stream()
+                    .map(restaurant -> executor.submit(() -> geoLocationService.geoLocate(restaurant.getAddress())))
+                    .toList();
+            for (int i = 0; i < pending.size(); i++) {
+                Restaurant restaurant = pending.get(i);
+                try {
+                    GeoLocation geoLocation = geoLocations.get(i).get();
+                    restaurant.setGeoLocation(new GeoPoint(geoLocation.getLatitude(), geoLocation.getLongitude()));
+                    restaurant.setGeoLocationPending(false);
+                    resolved.add(restaurant);
+                } catch (ExecutionException e) {
+                    log.debug("Geocoding restaurant {} failed", restaurant.getId(), e.getCause());
+                    retry(tasks.get(restaurant.getId()));
+                }
+            }
+        }
+        if (resolved.isEmpty()) {
+            return;
+        }
+
+        // Version conflicts mean the restaurant changed meanwhile, it is read and geocoded again
+        Map<String, String> updateFailures = restaurantRepository.bulkUpdateGeoLocations(resolved);
+        for (Restaurant restaurant : resolved) {
+            Task task = tasks.get(restaurant.getId());
+            if (updateFailures.containsKey(restaurant.getId())) {
+                log.debug("Saving the location of restaurant {} failed: {}",
+                        restaurant.getId(), updateFailures.get(restaurant.getId()));
+                retry(task);
+                continue;
+            }
+            restaurantsCache.evict(restaurant.getId());
+            restaurantGeoIndex.put(restaurant);
+            complete(task);
+        }
+        searchResultCache.invalidate();
+    }
+
+    private void complete(Task task) {
+        Long since = queuedSince.remove(task.restaurantId());
+        if (since != null) {
+            lag.record(System.nanoTime() - since, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void retry(Task task) {
+        if (task.attempt() >= maxAttempts) {
+            log.warn("Giving up geocoding restaurant {} after {} attempts", task.restaurantId(), task.attempt());
+            failures.increment();
+            queuedSince.remove(task.restaurantId());
+            return;
+        }
+        retries.increment();
+        long backoffNanos = retryBackoff.toNanos() << Math.min(task.attempt() - 1, 16);
+        queue.add(new Task(task.restaurantId(), task.attempt() + 1, System.nanoTime() + backoffNanos));
+    }
+
+    private double oldestAgeSeconds() {
+        long now = System.nanoTime();
+        return queuedSince.values().stream()
+                .mapToLong(since -> now - since)
+                .max()
+                .orElse(0) / 1e9;
+    }
+
+    // readyAt is a System.nanoTime() value
+    private record Task(String restaurantId, int attempt, long readyAt) implements Delayed {
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(readyAt - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(readyAt, ((Task) other).readyAt);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.bh.restaurant.support;
+
+import java.util.Optional;
+
+// Image formats accepted for uploads, detected from the file's leading "magic" bytes
+// rather than from the client supplied content type or file name.
+public enum ImageFormat {
+    JPEG("jpg"),
+    PNG("png"),
+    GIF("gif"),
+    WEBP("webp");
+
+    // Enough leading bytes to tell all formats apart
+    public static final int HEADER_LENGTH = 12;
+
+    private final String extension;
+
+    ImageFormat(String extension) {
+        this.extension = extension;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public static Optional<ImageFormat> detect(byte[] header, int length) {
+        if (startsWith(header, length, 0xFF, 0xD8, 0xFF)) {
+            return Optional.of(JPEG);
+        }
+        if (startsWith(header, length, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)) {
+            return Optional.of(PNG);
+        }
+        if (startsWith(header, length, 'G', 'I', 'F', '8')) {
+            return Optional.of(GIF);
+        }
+        // "RIFF" <4 byte size> "WEBP"
+        if (startsWith(header, length, 'R', 'I', 'F', 'F') && length >= 12
+                && header[8] == 'W' && header[9] == 'E' && header[10] == 'B' && header[11] == 'P') {
+            return Optional.of(WEBP);
+        }
+        return Optional.empty();
+    }
+
+    private static boolean startsWith(byte[] header, int length, int... magic) {
+        if (length < magic.length) {
+            return false;
+        }
+        for (int i = 0; i < magic.length; i++) {
+            if ((header[i] & 0xFF) != magic[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,68 @@
+package com.bh.restaurant.support;
+
+import com.bh.restaurant.exceptions.WriteConflictException;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+// Runs a read-modify-write against Elasticsearch and retries it when a conditional write
+// (seq_no / primary_term) fails because someone else changed the document in between.
+// Nothing is locked, so concurrent writers on other app instances are never serialized.
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OptimisticRetryExecutor {
+
+    @Value("${app.concurrency.max-attempts:5}")
+    private int maxAttempts; // Total attempts, including the first one
+
+    @Value("${app.concurrency.base-backoff-ms:10}")
+    private long baseBackoffMillis; // Backoff cap for the first retry, doubled on every retry
+
+    @Value("${app.concurrency.max-backoff-ms:200}")
+    private long maxBackoffMillis; // Upper bound for the backoff cap
+
+    private final MeterRegistry meterRegistry;
+
+    public <T> T execute(String operation, Supplier<T> action) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return action.get();
+            } catch (OptimisticLockingFailureException ex) {
+                meterRegistry.counter("optimistic.write.conflicts", "operation", operation).increment();
+                if (attempt >= maxAttempts) {
+                    throw new WriteConflictException(
+                            operation + " gave up after " + attempt + " conflicting attempts", ex);
+                }
+                meterRegistry.counter("optimistic.write.retries", "operation", operation).increment();
+                log.debug("Write conflict on {} (attempt {}), retrying", operation, attempt);
+                backoff(attempt);
+            }
+        }
+    }
+
+    public void execute(String operation, Runnable action) {
+        execute(operation, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    // Full jitter: sleep a random time between 0 and the exponential cap,
+    // so that writers that collided don't collide again on the next attempt
+    private void backoff(int attempt) {
+        long cap = Math.min(maxBackoffMillis, baseBackoffMillis << Math.min(attempt - 1, 20));
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(cap + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WriteConflictException("Interrupted while waiting to retry", e);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.bh.restaurant.support;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.function.Supplier;
+
+// Shape of an Elasticsearch request, so that requests which only differ in their values are grouped:
+// POST /restaurants/_search?typed_keys {"query":{"bool":{"must":[{"multi_match":{"query":?,"fields":[?]}}]}},"size":?}
+// Ids in the path, parameter values and every literal of the body are replaced by ?, arrays of
+// literals collapse to [?] whatever their length. Document bodies (_doc, _create, _bulk) are left out.
+public final class QueryFingerprint {
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private static final Set<String> DOCUMENT_OPERATIONS = Set.of("_doc", "_create", "_bulk", "_source");
+
+    // Path segments followed by an id, e.g. /restaurants/_doc/{id} or /_search/scroll/{scroll id}
+    private static final Set<String> SEGMENTS_BEFORE_ID = Set.of("_doc", "_create", "_update", "_source", "scroll");
+
+    // Fingerprints are map keys and log lines, huge queries are cut off
+    private static final int MAX_LENGTH = 2000;
+
+    private QueryFingerprint() {
+    }
+
+    // The body is only read when it is part of the fingerprint
+    public static String of(String method, String uri, Supplier<byte[]> body) {
+        StringBuilder fingerprint = new StringBuilder(128).append(method).append(' ');
+
+        int queryStart = uri.indexOf('?');
+        String path = queryStart < 0 ? uri : uri.substring(0, queryStart);
+        String operation = appendPath(path, fingerprint);
+        if (queryStart >= 0) {
+            appendParameterNames(uri.substring(queryStart + 1), fingerprint);
+        }
+
+        byte[] bytes = DOCUMENT_OPERATIONS.contains(operation) ? null : body.get();
+        if (bytes != null && bytes.length > 0) {
+            fingerprint.append(' ');
+            try (JsonParser parser = JSON.createParser(bytes)) {
+                if (parser.nextToken() != null) {
+                    appendValue(parser, fingerprint);
+                }
+            } catch (IOException e) {
+                fingerprint.append("<not json>");
+            }
+        }
+
+        return fingerprint.length() > MAX_LENGTH
+                ? fingerprint.substring(0, MAX_LENGTH) + "..."
+                : fingerprint.toString();
+    }
+
+    // Index names and operations are kept, ids are replaced.
+    // Returns the last operation, e.g. _doc for /restaurants/_doc/{id}.
+    private static String appendPath(String path, StringBuilder fingerprint) {
+        String operation = "";
+        String previous = "";
+        for (String segment : path.split("/")) {
+            if (segment.isEmpty()) {
+                continue;
+            }
+            fingerprint.append('/').append(SEGMENTS_BEFORE_ID.contains(previous) ? "?" : segment);
+            if (segment.startsWith("_")) {
+                operation = segment;
+            }
+            previous = segment;
+        }
+        if (previous.isEmpty()) {
+            fingerprint.append('/');
+        }
+        return operation;
+    }
+
+    private static void appendParameterNames(String query, StringBuilder fingerprint) {
+        char separator = '?';
+        for (String parameter : query.split("&")) {
+            if (parameter.isEmpty()) {
+                continue;
+            }
+            int equals = parameter.indexOf('=');
+            fingerprint.append(separator).append(equals < 0 ? parameter : parameter.substring(0, equals));
+            separator = '&';
+        }
+    }
+
+    // Appends the value at the current token, leaving the parser on its last token
+    private static void appendValue(JsonParser parser, StringBuilder fingerprint) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.START_OBJECT) {
+            fingerprint.append('{');
+            boolean first = true;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                if (!first) {
+                    fingerprint.append(',');
+                }
+                first = false;
+                fingerprint.append('"').append(parser.currentName()).append("\":");
+                parser.nextToken();
+                appendValue(parser, fingerprint);
+            }
+            fingerprint.append('}');
+        } else if (token == JsonToken.START_ARRAY) {
+            fingerprint.append('[');
+            boolean first = true;
+            boolean literalAppended = false;
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                boolean literal = parser.currentToken().isScalarValue();
+                if (literal && literalAppended) {
+                    continue;
+                }
+                if (!first) {
+                    fingerprint.append(',');
+                }
+                first = false;
+                literalAppended |= literal;
+                appendValue(parser, fingerprint);
+            }
+            fingerprint.append(']');
+        } else {
+            fingerprint.append('?');
+        }
+    }
+}
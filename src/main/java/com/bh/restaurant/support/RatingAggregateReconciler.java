@@ -0,0 +1,146 @@
+package com.bh.restaurant.support;
+
+import com.bh.restaurant.config.CacheConfig;
+import com.bh.restaurant.domain.entities.Restaurant;
+import com.bh.restaurant.repositories.RestaurantRepository;
+import com.bh.restaurant.repositories.ReviewRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.elasticsearch.core.query.SeqNoPrimaryTerm;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Repairs rating aggregates that drifted from the reviews. A review write and the rating change of
+// its restaurant are two Elasticsearch requests; when the second one fails, the restaurant's
+// ratingSum, reviewCount and ratingHistogram stay off. Each run recomputes them from the reviews
+// index and compares them with the restaurants.
+// A mismatch can also be a review write in flight between the two requests, so a restaurant is
+// only corrected when the same mismatch is seen again by the next run and the restaurant was not
+// written in between. The correction is conditional on that version.
+@Component
+@Slf4j
+public class RatingAggregateReconciler {
+
+    private final RestaurantRepository restaurantRepository;
+    private final ReviewRepository reviewRepository;
+    private final RestaurantGeoIndex restaurantGeoIndex;
+    private final SearchResultCache searchResultCache;
+    private final Cache restaurantsCache;
+    private final boolean enabled;
+    private final Counter corrections;
+
+    // Mismatches seen by the previous run, by restaurant id. Only used by the scheduler thread.
+    private Map<String, Drift> suspects = new HashMap<>();
+
+    public RatingAggregateReconciler(
+            RestaurantRepository restaurantRepository,
+            ReviewRepository reviewRepository,
+            RestaurantGeoIndex restaurantGeoIndex,
+            SearchResultCache searchResultCache,
+            CacheManager cacheManager,
+            MeterRegistry meterRegistry,
+            @Value("${app.ratings.reconcile.enabled:true}") boolean enabled) {
+        this.restaurantRepository = restaurantRepository;
+        this.reviewRepository = reviewRepository;
+        this.restaurantGeoIndex = restaurantGeoIndex;
+        this.searchResultCache = searchResultCache;
+        this.restaurantsCache = cacheManager.getCache(CacheConfig.RESTAURANTS_CACHE);
+        this.enabled = enabled;
+        this.corrections = Counter.builder("ratings.reconciled")
+                .description("Restaurants whose rating aggregates were recomputed from their reviews")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(
+            initialDelayString = "${app.ratings.reconcile.interval:1h}",
+            fixedDelayString = "${app.ratings.reconcile.interval:1h}")
+    public void reconcile() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            // One entry per restaurant with reviews, at most five counts each
+            Map<String, Map<Integer, Long>> counts = reviewRepository.countByRestaurantIdAndRating();
+
+            Map<String, Aggregates> mismatches = new HashMap<>();
+            restaurantRepository.forEachSummary(summary -> {
+                Aggregates expected = Aggregates.of(counts.get(summary.getId()));
+                long ratingSum = summary.getRatingSum() == null ? 0 : summary.getRatingSum();
+                int reviewCount = summary.getReviewCount() == null ? 0 : summary.getReviewCount();
+                if (expected.ratingSum() != ratingSum || expected.reviewCount() != reviewCount) {
+                    mismatches.put(summary.getId(), expected);
+                }
+            });
+
+            Map<String, Drift> seen = new HashMap<>();
+            restaurantRepository.findAllById(mismatches.keySet()).forEach(restaurant -> {
+                if (restaurant.getSeqNoPrimaryTerm() == null) {
+                    return; // the correction could not be made conditional
+                }
+                Drift drift = new Drift(restaurant.getSeqNoPrimaryTerm(), mismatches.get(restaurant.getId()));
+                if (drift.equals(suspects.get(restaurant.getId()))) {
+                    correct(restaurant, drift.expected());
+                } else {
+                    seen.put(restaurant.getId(), drift);
+                }
+            });
+            suspects = seen;
+        } catch (RuntimeException e) {
+            log.warn("Could not reconcile rating aggregates", e);
+        }
+    }
+
+    private void correct(Restaurant restaurant, Aggregates expected) {
+        log.warn("Rating aggregates of restaurant {} drifted: sum {} count {}, reviews say sum {} count {}",
+                restaurant.getId(), restaurant.getRatingSum(), restaurant.getReviewCount(),
+                expected.ratingSum(), expected.reviewCount());
+
+        restaurant.setRatingSum(expected.ratingSum());
+        restaurant.setReviewCount(expected.reviewCount());
+        restaurant.setRatingHistogram(expected.histogram());
+        restaurant.setAverageRating(expected.reviewCount() == 0
+                ? 0f
+                : (float) ((double) expected.ratingSum() / expected.reviewCount()));
+
+        // Written meanwhile: a rating change got through, the next runs look at it again
+        if (!restaurantRepository.replaceRatingAggregates(restaurant)) {
+            return;
+        }
+        corrections.increment();
+        restaurantsCache.evict(restaurant.getId());
+        restaurantGeoIndex.put(restaurant);
+        searchResultCache.invalidate();
+    }
+
+    private record Aggregates(long ratingSum, int reviewCount, Map<String, Integer> histogram) {
+
+        static Aggregates of(Map<Integer, Long> countsByRating) {
+            long sum = 0;
+            int count = 0;
+            // Every star, the ones without reviews at 0, like the histogram kept by the rating changes
+            Map<String, Integer> histogram = new HashMap<>();
+            for (int star = 1; star <= 5; star++) {
+                histogram.put(String.valueOf(star), 0);
+            }
+            if (countsByRating != null) {
+                for (Map.Entry<Integer, Long> entry : countsByRating.entrySet()) {
+                    sum += entry.getKey() * entry.getValue();
+                    count += entry.getValue().intValue();
+                    histogram.put(String.valueOf(entry.getKey()), entry.getValue().intValue());
+                }
+            }
+            return new Aggregates(sum, count, histogram);
+        }
+    }
+
+    // SeqNoPrimaryTerm is a record, so equal versions compare equal
+    private record Drift(SeqNoPrimaryTerm version, Aggregates expected) {
+    }
+}
@@ -0,0 +1,232 @@
+package com.bh.restaurant.support;
+
+import com.bh.restaurant.domain.RestaurantSearchCriteria;
+import com.bh.restaurant.domain.RestaurantSearchResult;
+import com.bh.restaurant.domain.entities.Restaurant;
+import com.bh.restaurant.repositories.RestaurantRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// In-memory spatial index of restaurant locations for "restaurants near me" searches.
+// Coordinates and ratings are kept in primitive arrays, bucketed in a uniform lat/lon grid.
+// Radius and nearest-k queries without a text query are answered from it; Elasticsearch is
+// still used for text matching. The index follows this instance's writes and is rebuilt from
+// Elasticsearch periodically, which also picks up writes made by other instances.
+@Component
+@Slf4j
+public class RestaurantGeoIndex {
+
+    private final RestaurantRepository restaurantRepository;
+    private final double cellSizeDegrees;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private GeoGrid grid; // guarded by lock
+    private Map<String, Restaurant> changesDuringReload; // guarded by lock, a null value is a removal
+    private volatile boolean ready;
+
+    public RestaurantGeoIndex(
+            RestaurantRepository restaurantRepository,
+            @Value("${app.geo-index.cell-size-degrees:0.05}") double cellSizeDegrees,
+            MeterRegistry meterRegistry) {
+        this.restaurantRepository = restaurantRepository;
+        this.cellSizeDegrees = cellSizeDegrees;
+        this.grid = new GeoGrid(cellSizeDegrees);
+        Gauge.builder("geo.index.size", this, RestaurantGeoIndex::size)
+                .description("Restaurants in the in-memory geo index")
+                .register(meterRegistry);
+    }
+
+    // Built in the background, searches go to Elasticsearch until it is ready
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        Thread.ofVirtual().name("geo-index-load").start(this::reload);
+    }
+
+    @Scheduled(
+            initialDelayString = "${app.geo-index.reload-interval:10m}",
+            fixedDelayString = "${app.geo-index.reload-interval:10m}")
+    public void reload() {
+        long start = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            changesDuringReload = new HashMap<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        // Scanned without holding the lock, writes made meanwhile are replayed on top
+        GeoGrid fresh = new GeoGrid(cellSizeDegrees);
+        try {
+            restaurantRepository.forEachSummary(fresh::put);
+        } catch (RuntimeException e) {
+            log.warn("Could not load the geo index, keeping the current one", e);
+            lock.writeLock().lock();
+            try {
+                changesDuringReload = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            changesDuringReload.forEach((id, restaurant) -> {
+                if (restaurant == null) {
+                    fresh.remove(id);
+                } else {
+                    fresh.put(restaurant);
+                }
+            });
+            changesDuringReload = null;
+            grid = fresh;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Loaded {} restaurants into the geo index in {} ms",
+                fresh.count(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return grid.count();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Called after a restaurant was created or updated
+    public void put(Restaurant restaurant) {
+        if (restaurant.getGeoLocation() == null) {
+            remove(restaurant.getId());
+            return;
+        }
+        Restaurant summary = summaryOf(restaurant);
+        lock.writeLock().lock();
+        try {
+            grid.put(summary);
+            if (changesDuringReload != null) {
+                changesDuringReload.put(summary.getId(), summary);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String id) {
+        lock.writeLock().lock();
+        try {
+            grid.remove(id);
+            if (changesDuringReload != null) {
+                changesDuringReload.put(id, null);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Mirrors RestaurantRatingRepository.applyRatingChange, so rating filters stay accurate without a re-read
+    public void applyRatingChange(String restaurantId, Integer addedRating, Integer removedRating) {
+        lock.writeLock().lock();
+        try {
+            Restaurant current = grid.get(restaurantId);
+            if (current == null) {
+                return; // not loaded yet, the next reload reads the new rating
+            }
+            Restaurant updated = summaryOf(current);
+            long sum = updated.getRatingSum() == null ? 0 : updated.getRatingSum();
+            int count = updated.getReviewCount() == null ? 0 : updated.getReviewCount();
+            if (removedRating != null) {
+                sum -= removedRating;
+                count--;
+            }
+            if (addedRating != null) {
+                sum += addedRating;
+                count++;
+            }
+            count = Math.max(0, count);
+            updated.setRatingSum(sum);
+            updated.setReviewCount(count);
+            updated.setAverageRating(count == 0 ? 0f : (float) ((double) sum / count));
+
+            // A new object, results already handed out are not modified
+            grid.put(updated);
+            if (changesDuringReload != null) {
+                changesDuringReload.put(restaurantId, updated);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Same results as RestaurantRepository.search for criteria with a location and without a text query
+    public Page<RestaurantSearchResult> search(RestaurantSearchCriteria criteria, Pageable pageable) {
+        double latitude = criteria.getLatitude();
+        double longitude = criteria.getLongitude();
+        float minRating = criteria.getMinRating() == null ? Float.NEGATIVE_INFINITY : criteria.getMinRating();
+        int end = (int) Math.min(Integer.MAX_VALUE, pageable.getOffset() + pageable.getPageSize());
+
+        List<RestaurantSearchResult> hits;
+        long total;
+        lock.readLock().lock();
+        try {
+            if (criteria.hasRadius()) {
+                hits = grid.withinRadius(latitude, longitude, criteria.getRadiusKm(), minRating);
+                total = hits.size();
+            } else {
+                hits = grid.nearest(latitude, longitude, end, minRating);
+                total = grid.count(minRating);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        int start = (int) Math.min(pageable.getOffset(), hits.size());
+        return new PageImpl<>(hits.subList(start, Math.min(end, hits.size())), pageable, total);
+    }
+
+    public List<RestaurantSearchResult> nearest(double latitude, double longitude, int k, Float minRating) {
+        lock.readLock().lock();
+        try {
+            return grid.nearest(latitude, longitude, k, minRating == null ? Float.NEGATIVE_INFINITY : minRating);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Only what RestaurantSummaryDto needs is kept in memory
+    private static Restaurant summaryOf(Restaurant restaurant) {
+        return Restaurant.builder()
+                .id(restaurant.getId())
+                .name(restaurant.getName())
+                .cuisineType(restaurant.getCuisineType())
+                .averageRating(restaurant.getAverageRating())
+                .ratingSum(restaurant.getRatingSum())
+                .reviewCount(restaurant.getReviewCount())
+                .address(restaurant.getAddress())
+                .photos(restaurant.getPhotos())
+                .geoLocation(restaurant.getGeoLocation())
+                .build();
+    }
+}
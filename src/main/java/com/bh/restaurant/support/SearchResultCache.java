@@ -0,0 +1,112 @@
+package com.bh.restaurant.support;
+
+import com.bh.restaurant.domain.RestaurantSearchCriteria;
+import com.bh.restaurant.domain.RestaurantSearchResult;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+
+// Short-lived cache for restaurant search result pages.
+// Near-identical searches share an entry: the text query is normalized and
+// coordinates are snapped to the center of their geohash cell.
+@Component
+public class SearchResultCache {
+
+    private final Cache<SearchKey, Page<RestaurantSearchResult>> cache;
+    private final int geohashPrecision;
+
+    // Part of every key: bumping it makes all existing entries unreachable, they age out on their own
+    private final AtomicLong generation = new AtomicLong();
+
+    public SearchResultCache(
+            @Value("${app.cache.search.max-size:10000}") long maxSize,
+            @Value("${app.cache.search.ttl:30s}") Duration ttl,
+            @Value("${app.cache.search.geohash-precision:7}") int geohashPrecision,
+            MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.geohashPrecision = geohashPrecision;
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "restaurantSearch");
+    }
+
+    public Page<RestaurantSearchResult> get(
+            RestaurantSearchCriteria criteria,
+            Pageable pageable,
+            BiFunction<RestaurantSearchCriteria, Pageable, Page<RestaurantSearchResult>> search) {
+
+        RestaurantSearchCriteria normalized = normalize(criteria);
+        String geohash = normalized.hasLocation()
+                ? GeoHash.encode(normalized.getLatitude(), normalized.getLongitude(), geohashPrecision)
+                : null;
+
+        SearchKey key = new SearchKey(
+                generation.get(),
+                normalized.getQuery(),
+                normalized.getMinRating(),
+                geohash,
+                normalized.getRadiusKm(),
+                pageable.getPageNumber(),
+                pageable.getPageSize(),
+                pageable.getSort());
+
+        // Not cache.get(key, loader): Caffeine would run the search inside ConcurrentHashMap.compute,
+        // holding a lock that pins the (virtual) thread and blocks other keys of the same bin for the
+        // whole Elasticsearch request. Concurrent misses of one key may each run the search.
+        Page<RestaurantSearchResult> cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        Page<RestaurantSearchResult> page = search.apply(normalized, pageable);
+        cache.put(key, page);
+        return page;
+    }
+
+    // Called on every write that can change search results (restaurants and their ratings)
+    public void invalidate() {
+        generation.incrementAndGet();
+    }
+
+    // Lower-cases and collapses whitespace in the query, snaps the location to its geohash cell center
+    private RestaurantSearchCriteria normalize(RestaurantSearchCriteria criteria) {
+        RestaurantSearchCriteria normalized = RestaurantSearchCriteria.builder()
+                .query(criteria.hasQuery()
+                        ? criteria.getQuery().trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT)
+                        : null)
+                .minRating(criteria.getMinRating())
+                .radiusKm(criteria.getRadiusKm())
+                .build();
+
+        if (criteria.hasLocation()) {
+            String geohash = GeoHash.encode(criteria.getLatitude(), criteria.getLongitude(), geohashPrecision);
+            double[] center = GeoHash.decodeCenter(geohash);
+            normalized.setLatitude((float) center[0]);
+            normalized.setLongitude((float) center[1]);
+        }
+        return normalized;
+    }
+
+    private record SearchKey(
+            long generation,
+            String query,
+            Float minRating,
+            String geohash,
+            Float radiusKm,
+            int page,
+            int size,
+            Sort sort) {
+    }
+}
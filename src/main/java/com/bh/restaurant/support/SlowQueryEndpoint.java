@@ -0,0 +1,30 @@
+package com.bh.restaurant.support;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// GET /actuator/slowqueries: Elasticsearch request statistics by query fingerprint, most expensive first.
+// DELETE /actuator/slowqueries starts over, e.g. before a load test.
+// Both need the actuator role (app.security.actuator-role), see SecurityConfig.
+@Component
+@Endpoint(id = "slowqueries")
+@RequiredArgsConstructor
+public class SlowQueryEndpoint {
+
+    private final SlowQueryLog slowQueryLog;
+
+    @ReadOperation
+    public List<SlowQueryLog.FingerprintSnapshot> fingerprints() {
+        return slowQueryLog.snapshot();
+    }
+
+    @DeleteOperation
+    public void reset() {
+        slowQueryLog.reset();
+    }
+}
@@ -0,0 +1,183 @@
+package com.bh.restaurant.support;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Latency of every Elasticsearch request by query fingerprint (see QueryFingerprint), and a log
+// line for each request slower than the threshold. Requests are recorded by the HTTP client,
+// see SlowQueryLogConfig; the statistics are served by the "slowqueries" actuator endpoint.
+@Component
+@Slf4j
+public class SlowQueryLog {
+
+    // Collects the requests of new fingerprints once max-fingerprints are tracked
+    private static final String OTHER_FINGERPRINT = "(other)";
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private final long thresholdNanos;
+    private final int maxFingerprints;
+
+    // Entries are created once per fingerprint, recording only updates adders: no locks on the request path.
+    // The size check is not atomic, concurrent new fingerprints can exceed the bound by a few entries.
+    private final Map<String, FingerprintStats> stats = new ConcurrentHashMap<>();
+
+    public SlowQueryLog(
+            @Value("${app.elasticsearch.slow-query.threshold:500ms}") Duration threshold,
+            @Value("${app.elasticsearch.slow-query.max-fingerprints:1000}") int maxFingerprints) {
+        this.thresholdNanos = threshold.toNanos();
+        this.maxFingerprints = maxFingerprints;
+    }
+
+    public boolean isSlow(long durationNanos) {
+        return durationNanos >= thresholdNanos;
+    }
+
+    // responseBody is only needed for slow requests, for the took time and the hit count
+    public void record(String fingerprint, int status, long durationNanos, long responseBytes, byte[] responseBody) {
+        FingerprintStats fingerprintStats = stats.get(fingerprint);
+        if (fingerprintStats == null) {
+            fingerprintStats = stats.computeIfAbsent(
+                    stats.size() < maxFingerprints ? fingerprint : OTHER_FINGERPRINT,
+                    key -> new FingerprintStats());
+        }
+        boolean slow = isSlow(durationNanos);
+        fingerprintStats.record(durationNanos, responseBytes, slow);
+
+        if (slow) {
+            ResponseSummary summary = ResponseSummary.parse(responseBody);
+            log.warn("Slow Elasticsearch request: {} ms (status {}, took {} ms, {} hits, {} bytes) {}",
+                    TimeUnit.NANOSECONDS.toMillis(durationNanos), status,
+                    summary.took() == null ? "-" : summary.took(),
+                    summary.hits() == null ? "-" : summary.hits(),
+                    responseBytes, fingerprint);
+        }
+    }
+
+    // Fingerprints by total time spent, the most expensive first
+    public List<FingerprintSnapshot> snapshot() {
+        return stats.entrySet().stream()
+                .map(entry -> entry.getValue().snapshot(entry.getKey()))
+                .sorted(Comparator.comparingDouble(FingerprintSnapshot::totalMillis).reversed())
+                .toList();
+    }
+
+    public void reset() {
+        stats.clear();
+    }
+
+    private static class FingerprintStats {
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder slowCount = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        private final LongAdder totalResponseBytes = new LongAdder();
+
+        void record(long durationNanos, long responseBytes, boolean slow) {
+            count.increment();
+            totalNanos.add(durationNanos);
+            maxNanos.accumulate(durationNanos);
+            totalResponseBytes.add(responseBytes);
+            if (slow) {
+                slowCount.increment();
+            }
+        }
+
+        // The sums are read one after the other, so a snapshot taken under load can be slightly off
+        FingerprintSnapshot snapshot(String fingerprint) {
+            long requests = count.sum();
+            double totalMillis = totalNanos.sum() / 1e6;
+            return new FingerprintSnapshot(
+                    fingerprint,
+                    requests,
+                    slowCount.sum(),
+                    totalMillis,
+                    requests == 0 ? 0 : totalMillis / requests,
+                    maxNanos.get() / 1e6,
+                    requests == 0 ? 0 : totalResponseBytes.sum() / requests);
+        }
+    }
+
+    public record FingerprintSnapshot(
+            String fingerprint,
+            long count,
+            long slowCount,
+            double totalMillis,
+            double meanMillis,
+            double maxMillis,
+            long meanResponseBytes) {
+    }
+
+    // took and the total hit count of search and count responses, read from the start of the body
+    private record ResponseSummary(Long took, Long hits) {
+
+        private static final ResponseSummary EMPTY = new ResponseSummary(null, null);
+
+        static ResponseSummary parse(byte[] body) {
+            if (body == null || body.length == 0) {
+                return EMPTY;
+            }
+            Long took = null;
+            Long hits = null;
+            try (JsonParser parser = JSON.createParser(body)) {
+                if (parser.nextToken() != JsonToken.START_OBJECT) {
+                    return EMPTY;
+                }
+                while (parser.nextToken() == JsonToken.FIELD_NAME && (took == null || hits == null)) {
+                    String field = parser.currentName();
+                    parser.nextToken();
+                    if ("took".equals(field)) {
+                        took = parser.getLongValue();
+                    } else if ("count".equals(field) && parser.currentToken().isNumeric()) {
+                        hits = parser.getLongValue();
+                    } else if ("hits".equals(field) && parser.currentToken() == JsonToken.START_OBJECT) {
+                        hits = totalHits(parser);
+                        break; // took comes before hits, the rest of the body is not needed
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } catch (IOException e) {
+                // not JSON, e.g. a compressed body: report what was read
+            }
+            return new ResponseSummary(took, hits);
+        }
+
+        // "total": {"value": 42, "relation": "eq"}, leaves the parser inside the hits object
+        private static Long totalHits(JsonParser parser) throws IOException {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                if (!"total".equals(field)) {
+                    parser.skipChildren();
+                } else if (parser.currentToken().isNumeric()) {
+                    return parser.getLongValue();
+                } else if (parser.currentToken() == JsonToken.START_OBJECT) {
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String totalField = parser.currentName();
+                        parser.nextToken();
+                        if ("value".equals(totalField)) {
+                            return parser.getLongValue();
+                        }
+                    }
+                }
+            }
+            return null;
+        }
+    }
+}
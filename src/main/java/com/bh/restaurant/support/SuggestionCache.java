@@ -0,0 +1,60 @@
+package com.bh.restaurant.support;
+
+import com.bh.restaurant.domain.entities.Restaurant;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+
+// Typeahead suggestions by prefix. Every keystroke is a request and most users type the same
+// first letters, so the short prefixes are served from memory; the size bound keeps the hottest ones.
+@Component
+public class SuggestionCache {
+
+    private final Cache<SuggestionKey, List<Restaurant>> cache;
+
+    // Part of every key, see SearchResultCache
+    private final AtomicLong generation = new AtomicLong();
+
+    public SuggestionCache(
+            @Value("${app.cache.suggest.max-size:10000}") long maxSize,
+            @Value("${app.cache.suggest.ttl:60s}") Duration ttl,
+            MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "restaurantSuggest");
+    }
+
+    // "Pi", "pi " and " PI" share an entry, the analyzers ignore case and surrounding whitespace
+    public List<Restaurant> get(String prefix, int size, BiFunction<String, Integer, List<Restaurant>> suggest) {
+        String normalized = prefix.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+        SuggestionKey key = new SuggestionKey(generation.get(), normalized, size);
+        // Not cache.get(key, loader), see SearchResultCache.get
+        List<Restaurant> cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        List<Restaurant> suggestions = suggest.apply(normalized, size);
+        cache.put(key, suggestions);
+        return suggestions;
+    }
+
+    // Called on every write that changes restaurant names or cuisine types
+    public void invalidate() {
+        generation.incrementAndGet();
+    }
+
+    private record SuggestionKey(long generation, String prefix, int size) {
+    }
+}
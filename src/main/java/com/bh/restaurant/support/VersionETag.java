@@ -0,0 +1,22 @@
+package com.bh.restaurant.support;
+
+import com.bh.restaurant.domain.entities.Restaurant;
+import org.springframework.data.elasticsearch.core.query.SeqNoPrimaryTerm;
+
+// Strong ETag derived from the Elasticsearch version of a restaurant document.
+// Every write to the restaurant, including the rating script run by each review
+// create / update / delete, bumps its sequence number, so the tag also covers its reviews.
+public final class VersionETag {
+
+    private VersionETag() {
+    }
+
+    // Returns null when the version is unknown, no ETag is sent then
+    public static String of(Restaurant restaurant) {
+        SeqNoPrimaryTerm version = restaurant.getSeqNoPrimaryTerm();
+        if (version == null) {
+            return null;
+        }
+        return "\"" + restaurant.getId() + "-" + version.primaryTerm() + "-" + version.sequenceNumber() + "\"";
+    }
+}
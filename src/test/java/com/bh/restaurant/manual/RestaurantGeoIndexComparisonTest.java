@@ -0,0 +1,104 @@
+package com.bh.restaurant.manual;
+
+import com.bh.restaurant.domain.RestaurantSearchCriteria;
+import com.bh.restaurant.domain.RestaurantSearchResult;
+import com.bh.restaurant.repositories.RestaurantRepository;
+import com.bh.restaurant.support.RestaurantGeoIndex;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Checks the in-memory geo index against Elasticsearch and compares their latency.
+// Needs a running Elasticsearch with restaurants in it (see RestaurantDataLoaderTest):
+//
+//   mvn test -Dtest=RestaurantGeoIndexComparisonTest -Dmanual.geoIndex=true
+//
+// Optional: -Dmanual.geoIndex.queries=1000
+@EnabledIfSystemProperty(named = "manual.geoIndex", matches = "true")
+@SpringBootTest
+public class RestaurantGeoIndexComparisonTest {
+
+    // Restaurants at (almost) the same distance may come back in either order
+    private static final double DISTANCE_TOLERANCE_KM = 0.001;
+
+    @Autowired
+    private RestaurantGeoIndex restaurantGeoIndex;
+
+    @Autowired
+    private RestaurantRepository restaurantRepository;
+
+    @Test
+    public void compareWithElasticsearch() {
+        restaurantGeoIndex.reload();
+        System.out.printf("Geo index holds %d restaurants%n", restaurantGeoIndex.size());
+
+        int queries = Integer.getInteger("manual.geoIndex.queries", 1000);
+        Random random = new Random(42);
+        long[] indexNanos = new long[queries];
+        long[] elasticsearchNanos = new long[queries];
+
+        for (int i = 0; i < queries; i++) {
+            RestaurantSearchCriteria criteria = RestaurantSearchCriteria.builder()
+                    .latitude(51.28f + random.nextFloat() * 0.42f)
+                    .longitude(-0.51f + random.nextFloat() * 0.84f)
+                    .radiusKm(random.nextBoolean() ? 0.5f + random.nextFloat() * 10f : null)
+                    .minRating(random.nextInt(3) == 0 ? (float) random.nextInt(5) : null)
+                    .build();
+            Pageable pageable = PageRequest.of(random.nextInt(3), 20);
+
+            long start = System.nanoTime();
+            Page<RestaurantSearchResult> fromIndex = restaurantGeoIndex.search(criteria, pageable);
+            indexNanos[i] = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            Page<RestaurantSearchResult> fromElasticsearch = restaurantRepository.search(criteria, pageable);
+            elasticsearchNanos[i] = System.nanoTime() - start;
+
+            assertSameResults(criteria, fromElasticsearch, fromIndex);
+        }
+
+        report("Geo index", indexNanos);
+        report("Elasticsearch", elasticsearchNanos);
+    }
+
+    private static void assertSameResults(
+            RestaurantSearchCriteria criteria,
+            Page<RestaurantSearchResult> expected,
+            Page<RestaurantSearchResult> actual
+    ) {
+        assertEquals(expected.getTotalElements(), actual.getTotalElements(), "total for " + criteria);
+        List<RestaurantSearchResult> expectedHits = expected.getContent();
+        List<RestaurantSearchResult> actualHits = actual.getContent();
+        assertEquals(expectedHits.size(), actualHits.size(), "page size for " + criteria);
+
+        for (int i = 0; i < expectedHits.size(); i++) {
+            RestaurantSearchResult expectedHit = expectedHits.get(i);
+            RestaurantSearchResult actualHit = actualHits.get(i);
+            if (expectedHit.getRestaurant().getId().equals(actualHit.getRestaurant().getId())) {
+                continue;
+            }
+            // A different id is only acceptable for a tie
+            assertEquals(expectedHit.getDistanceKm(), actualHit.getDistanceKm(), DISTANCE_TOLERANCE_KM,
+                    "hit " + i + " for " + criteria);
+        }
+    }
+
+    private static void report(String name, long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        System.out.printf("%-14s p50=%.3fms p99=%.3fms max=%.3fms%n", name,
+                sorted[sorted.length / 2] / 1e6,
+                sorted[(int) (sorted.length * 0.99)] / 1e6,
+                sorted[sorted.length - 1] / 1e6);
+    }
+}
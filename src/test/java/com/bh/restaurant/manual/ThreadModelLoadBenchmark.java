@@ -0,0 +1,118 @@
+package com.bh.restaurant.manual;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Load benchmark for comparing the virtual thread and the platform thread request model.
+// Start the application twice, with spring.threads.virtual.enabled=true and =false, and run
+// against each (ideally with Elasticsearch slowed down, e.g. with a large index or tc netem):
+//
+//   mvn test -Dtest=ThreadModelLoadBenchmark -Dbenchmark.url=http://localhost:8080/api/restaurants?q=pizza
+//
+// Optional: -Dbenchmark.concurrency=500 -Dbenchmark.duration=30s -Dbenchmark.photoUrl=<photo url>
+// With photoUrl set, a quarter of the requests fetch the photo, showing whether slow searches stall photo serving.
+@EnabledIfSystemProperty(named = "benchmark.url", matches = ".+")
+public class ThreadModelLoadBenchmark {
+
+    @Test
+    public void run() throws Exception {
+        URI searchUri = URI.create(System.getProperty("benchmark.url"));
+        String photoUrl = System.getProperty("benchmark.photoUrl");
+        URI photoUri = photoUrl == null ? null : URI.create(photoUrl);
+        int concurrency = Integer.getInteger("benchmark.concurrency", 500);
+        Duration duration = Duration.parse("PT" + System.getProperty("benchmark.duration", "30s").toUpperCase());
+
+        HttpClient client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+
+        List<long[]> searchLatencies = new ArrayList<>();
+        List<long[]> photoLatencies = new ArrayList<>();
+        AtomicLong errors = new AtomicLong();
+        long deadline = System.nanoTime() + duration.toNanos();
+
+        // One virtual thread per simulated client, each sending requests back to back
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < concurrency; i++) {
+                long[] searches = new long[1 << 16];
+                long[] photos = new long[1 << 16];
+                synchronized (searchLatencies) {
+                    searchLatencies.add(searches);
+                    photoLatencies.add(photos);
+                }
+                int clientIndex = i;
+                clients.submit(() -> {
+                    int searchCount = 0, photoCount = 0, request = clientIndex;
+                    while (System.nanoTime() < deadline) {
+                        boolean photo = photoUri != null && request++ % 4 == 0;
+                        long start = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = client.send(
+                                    HttpRequest.newBuilder(photo ? photoUri : searchUri)
+                                            .timeout(Duration.ofSeconds(30))
+                                            .build(),
+                                    HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() >= 400) {
+                                errors.incrementAndGet();
+                                continue;
+                            }
+                        } catch (Exception e) {
+                            errors.incrementAndGet();
+                            continue;
+                        }
+                        long latency = System.nanoTime() - start;
+                        if (photo && photoCount < photos.length) {
+                            photos[photoCount++] = latency;
+                        } else if (!photo && searchCount < searches.length) {
+                            searches[searchCount++] = latency;
+                        }
+                    }
+                    return null;
+                });
+            }
+        }
+
+        report("search", searchLatencies, duration);
+        if (photoUri != null) {
+            report("photo", photoLatencies, duration);
+        }
+        System.out.printf("errors (status >= 400 or I/O failure): %d%n", errors.get());
+    }
+
+    private static void report(String name, List<long[]> perClient, Duration duration) {
+        long[] all = perClient.stream()
+                .flatMapToLong(latencies -> Arrays.stream(latencies).filter(latency -> latency > 0))
+                .sorted()
+                .toArray();
+        if (all.length == 0) {
+            System.out.printf("%s: no successful requests%n", name);
+            return;
+        }
+        System.out.printf("%s: %d requests, %.1f req/s, p50 %.1f ms, p99 %.1f ms, p99.9 %.1f ms, max %.1f ms%n",
+                name,
+                all.length,
+                all.length / (double) duration.toSeconds(),
+                percentile(all, 0.50),
+                percentile(all, 0.99),
+                percentile(all, 0.999),
+                all[all.length - 1] / 1_000_000.0);
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1_000_000.0;
+    }
+}
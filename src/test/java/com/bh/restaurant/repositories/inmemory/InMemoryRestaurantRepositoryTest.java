@@ -0,0 +1,166 @@
+package com.bh.restaurant.repositories.inmemory;
+
+import com.bh.restaurant.domain.RestaurantSearchCriteria;
+import com.bh.restaurant.domain.RestaurantSearchResult;
+import com.bh.restaurant.domain.entities.Restaurant;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.elasticsearch.core.geo.GeoPoint;
+import org.springframework.data.elasticsearch.core.query.SeqNoPrimaryTerm;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InMemoryRestaurantRepositoryTest {
+
+    private final InMemoryRestaurantRepository repository = new InMemoryRestaurantRepository(0.05);
+
+    @Test
+    void versionsEveryWriteAndRejectsStaleOnes() {
+        Restaurant saved = repository.save(restaurant(null, "Pizza Palace", "Italian", 4f));
+        assertNotNull(saved.getId());
+        SeqNoPrimaryTerm first = saved.getSeqNoPrimaryTerm();
+
+        Restaurant stale = repository.findById(saved.getId()).orElseThrow();
+        saved.setName("Pizza Palazzo");
+        repository.save(saved);
+        assertNotEquals(first, saved.getSeqNoPrimaryTerm());
+
+        stale.setName("Pizza Place");
+        assertThrows(OptimisticLockingFailureException.class, () -> repository.save(stale));
+        assertEquals("Pizza Palazzo", repository.findById(saved.getId()).orElseThrow().getName());
+    }
+
+    @Test
+    void returnsCopies() {
+        repository.save(restaurant("r1", "Pizza Palace", "Italian", 4f));
+
+        repository.findById("r1").orElseThrow().setName("Changed");
+
+        assertEquals("Pizza Palace", repository.findById("r1").orElseThrow().getName());
+    }
+
+    @Test
+    void ranksExactMatchesAboveFuzzyOnes() {
+        repository.save(restaurant("thai", "Thai Garden", "Asian", 3f));
+        repository.save(restaurant("chai", "Chai House", "Cafe", 3f));
+        repository.save(restaurant("other", "Burger Barn", "American", 3f));
+
+        assertEquals(List.of("thai", "chai"), ids(search(RestaurantSearchCriteria.builder().query("thai").build())));
+        // One edit is allowed from three characters on, none below
+        assertEquals(List.of("thai"), ids(search(RestaurantSearchCriteria.builder().query("tahi").build())));
+        assertTrue(search(RestaurantSearchCriteria.builder().query("th").build()).isEmpty());
+    }
+
+    @Test
+    void ranksRareWordsAboveCommonOnes() {
+        repository.save(restaurant("a", "Golden Dragon", "Chinese", 3f));
+        repository.save(restaurant("b", "Golden Fork", "British", 3f));
+        repository.save(restaurant("c", "Golden Spoon", "British", 3f));
+
+        // "golden" is in every name and adds nothing, "dragon" decides
+        assertEquals("a", ids(search(RestaurantSearchCriteria.builder().query("golden dragon").build())).getFirst());
+    }
+
+    @Test
+    void takesTheBetterFieldInsteadOfAddingThem() {
+        // "sushi" is in two names and two cuisine types, so it weighs the same in both fields
+        repository.save(restaurant("z-both", "Sushi Bar", "Sushi", 3f));
+        repository.save(restaurant("b-name", "Sushi Place", "Japanese", 3f));
+        repository.save(restaurant("a-cuisine", "Zen", "Sushi", 3f));
+        repository.save(restaurant("other", "Burger Barn", "American", 3f));
+
+        List<RestaurantSearchResult> results = search(RestaurantSearchCriteria.builder().query("sushi").build());
+
+        // Same score whichever fields match, ties are broken by id
+        assertEquals(List.of("a-cuisine", "b-name", "z-both"), ids(results));
+    }
+
+    @Test
+    void filtersTextMatchesByRatingAndSortsThemByDistance() {
+        repository.save(located("near", "Pizza Near", 4f, 51.501, -0.1));
+        repository.save(located("far", "Pizza Far", 4f, 51.6, -0.1));
+        repository.save(located("low", "Pizza Low", 2f, 51.5, -0.1));
+
+        List<RestaurantSearchResult> results = search(RestaurantSearchCriteria.builder()
+                .query("pizza").minRating(3f).latitude(51.5f).longitude(-0.1f).build());
+
+        assertEquals(List.of("near", "far"), ids(results));
+        assertTrue(results.getFirst().getDistanceKm() < results.get(1).getDistanceKm());
+    }
+
+    @Test
+    void followsUpdatesInTheTokenIndexes() {
+        Restaurant saved = repository.save(restaurant("r1", "Pizza Palace", "Italian", 4f));
+        saved.setName("Noodle Palace");
+        repository.save(saved);
+
+        assertTrue(search(RestaurantSearchCriteria.builder().query("pizza").build()).isEmpty());
+        assertEquals(List.of("r1"), ids(search(RestaurantSearchCriteria.builder().query("noodle").build())));
+
+        repository.deleteById("r1");
+        assertTrue(search(RestaurantSearchCriteria.builder().query("noodle").build()).isEmpty());
+        assertTrue(repository.suggest("pal", 10).isEmpty());
+    }
+
+    @Test
+    void suggestsByPrefixOfTheLastWord() {
+        repository.save(restaurant("palace", "Pizza Palace", "Italian", 4f));
+        repository.save(restaurant("roma", "Pizza Roma", "Italian", 4f));
+        repository.save(restaurant("pier", "Pier Fish", "Seafood", 4f));
+
+        // "pier" is the rarer word, the two pizzas tie and come by id
+        assertEquals(List.of("pier", "palace", "roma"), suggestionIds("pi"));
+        assertEquals(List.of("palace"), suggestionIds("pizza pa"));
+        // Earlier words have to match whole
+        assertTrue(suggestionIds("piz pa").isEmpty());
+        // One field has to contain all of them
+        assertTrue(suggestionIds("roma ital").isEmpty());
+
+        Restaurant suggestion = repository.suggest("pier", 1).getFirst();
+        assertEquals("Pier Fish", suggestion.getName());
+        assertNull(suggestion.getAverageRating()); // only id, name and cuisineType
+    }
+
+    @Test
+    void ranksSuggestionsMatchingBothFieldsFirst() {
+        repository.save(restaurant("cuisine", "Sakura", "Sushi", 4f));
+        repository.save(restaurant("both", "Sushi Zen", "Sushi", 4f));
+
+        assertEquals(List.of("both", "cuisine"), suggestionIds("sus"));
+    }
+
+    private List<RestaurantSearchResult> search(RestaurantSearchCriteria criteria) {
+        return repository.search(criteria, PageRequest.of(0, 20)).getContent();
+    }
+
+    private List<String> suggestionIds(String prefix) {
+        return repository.suggest(prefix, 10).stream().map(Restaurant::getId).toList();
+    }
+
+    private static List<String> ids(List<RestaurantSearchResult> results) {
+        return results.stream().map(result -> result.getRestaurant().getId()).toList();
+    }
+
+    private static Restaurant located(String id, String name, float rating, double latitude, double longitude) {
+        Restaurant restaurant = restaurant(id, name, "Italian", rating);
+        restaurant.setGeoLocation(new GeoPoint(latitude, longitude));
+        return restaurant;
+    }
+
+    private static Restaurant restaurant(String id, String name, String cuisineType, float rating) {
+        return Restaurant.builder()
+                .id(id)
+                .name(name)
+                .cuisineType(cuisineType)
+                .averageRating(rating)
+                .build();
+    }
+}
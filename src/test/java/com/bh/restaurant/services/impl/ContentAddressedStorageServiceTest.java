@@ -0,0 +1,75 @@
+package com.bh.restaurant.services.impl;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.Resource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ContentAddressedStorageServiceTest {
+
+    private static final String PHOTO_ID = "0f8b2c1e-6a3d-4e2b-9c7a-1d2e3f4a5b6c.jpg";
+
+    @TempDir
+    Path root;
+
+    @Test
+    void keepsTheIndexOutOfTheServedDirectories() throws IOException {
+        ContentAddressedStorageService storage = storage();
+        storage.store(new ByteArrayInputStream(bytes("photo")), PHOTO_ID);
+
+        assertTrue(Files.exists(root.resolve("index").resolve("photo-index.log")));
+        assertFalse(Files.exists(root.resolve("photo-index.log")));
+        for (String name : new String[]{"photo-index.log", "index", "blobs", "geocoding"}) {
+            assertTrue(storage.loadAsResource(name).isEmpty(), name);
+        }
+        assertEquals("photo", read(storage.loadAsResource(PHOTO_ID).orElseThrow()));
+    }
+
+    @Test
+    void movesTheIndexOfEarlierVersions() throws IOException {
+        ContentAddressedStorageService first = storage();
+        first.store(new ByteArrayInputStream(bytes("photo")), PHOTO_ID);
+        Files.move(root.resolve("index").resolve("photo-index.log"), root.resolve("photo-index.log"));
+
+        ContentAddressedStorageService restarted = storage();
+
+        assertFalse(Files.exists(root.resolve("photo-index.log")));
+        assertEquals("photo", read(restarted.loadAsResource(PHOTO_ID).orElseThrow()));
+    }
+
+    @Test
+    void servesOnlyPhotoIdsFromTheFlatLayout() throws IOException {
+        Files.writeString(root.resolve(PHOTO_ID), "legacy");
+        Files.writeString(root.resolve("notes.txt"), "not a photo");
+
+        ContentAddressedStorageService storage = storage();
+
+        assertEquals("legacy", read(storage.loadAsResource(PHOTO_ID).orElseThrow()));
+        assertTrue(storage.loadAsResource("notes.txt").isEmpty());
+    }
+
+    private ContentAddressedStorageService storage() {
+        ContentAddressedStorageService storage = new ContentAddressedStorageService();
+        ReflectionTestUtils.setField(storage, "storageLocation", root.toString());
+        storage.init();
+        return storage;
+    }
+
+    private static byte[] bytes(String content) {
+        return content.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String read(Resource resource) throws IOException {
+        return resource.getContentAsString(StandardCharsets.UTF_8);
+    }
+}
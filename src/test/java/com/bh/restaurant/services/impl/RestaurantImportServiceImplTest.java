@@ -0,0 +1,95 @@
+package com.bh.restaurant.services.impl;
+
+import com.bh.restaurant.domain.GeoLocation;
+import com.bh.restaurant.domain.ImportFormat;
+import com.bh.restaurant.domain.ImportLineError;
+import com.bh.restaurant.domain.RestaurantImportResult;
+import com.bh.restaurant.exceptions.InvalidImportException;
+import com.bh.restaurant.mappers.RestaurantMapperImpl;
+import com.bh.restaurant.repositories.inmemory.InMemoryRestaurantRepository;
+import com.bh.restaurant.support.RestaurantGeoIndex;
+import com.bh.restaurant.support.SearchResultCache;
+import com.bh.restaurant.support.SuggestionCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RestaurantImportServiceImplTest {
+
+    private static final String HEADER =
+            "name,cuisineType,contactInformation,streetNumber,streetName,city,state,postalCode,country,photoIds";
+
+    private final InMemoryRestaurantRepository repository = new InMemoryRestaurantRepository(0.05);
+
+    private final RestaurantImportServiceImpl importService = new RestaurantImportServiceImpl(
+            repository,
+            address -> new GeoLocation(51.5, -0.1),
+            new RestaurantMapperImpl(),
+            Validation.buildDefaultValidatorFactory().getValidator(),
+            new ObjectMapper(),
+            new SearchResultCache(100, Duration.ofSeconds(30), 7, new SimpleMeterRegistry()),
+            new SuggestionCache(100, Duration.ofSeconds(60), new SimpleMeterRegistry()),
+            new RestaurantGeoIndex(repository, 0.05, new SimpleMeterRegistry()),
+            2,
+            DataSize.ofMegabytes(5),
+            4,
+            100,
+            200);
+
+    @Test
+    void reportsOverLongLinesAndGoesOnWithTheNextOne() {
+        String input = HEADER + "\r\n"
+                + row("Pizza Palace") + "\r\n"
+                + row("x".repeat(500)) + "\r\n"
+                + row("Thai Garden") + "\n"
+                + row("y".repeat(190)) + "\n"
+                + row("Burger Barn");
+
+        RestaurantImportResult result = importService.importRestaurants(stream(input), ImportFormat.CSV);
+
+        assertEquals(3, result.getImported());
+        assertEquals(2, result.getFailed());
+        assertEquals(List.of(3L, 5L), result.getErrors().stream().map(ImportLineError::getLine).toList());
+        assertEquals("Line is longer than 200 characters", result.getErrors().getFirst().getMessage());
+        assertEquals(3, repository.count());
+    }
+
+    @Test
+    void acceptsLinesUpToTheLimit() {
+        String name = "Pizza Palace";
+        String longest = row(name + " " + "z".repeat(200 - row(name).length() - 1));
+        assertEquals(200, longest.length());
+
+        RestaurantImportResult result =
+                importService.importRestaurants(stream(HEADER + "\r\n" + longest + "\r\n"), ImportFormat.CSV);
+
+        assertEquals(1, result.getImported());
+        assertEquals(0, result.getFailed());
+    }
+
+    @Test
+    void rejectsAnOverLongHeader() {
+        String input = HEADER + ",".repeat(200) + "\n" + row("Pizza Palace");
+
+        assertThrows(InvalidImportException.class,
+                () -> importService.importRestaurants(stream(input), ImportFormat.CSV));
+    }
+
+    private static String row(String name) {
+        return name + ",Italian,020 7946 0000,12,High Street,London,Greater London,SW1A 1AA,United Kingdom,photo-1";
+    }
+
+    private static ByteArrayInputStream stream(String input) {
+        return new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8));
+    }
+}
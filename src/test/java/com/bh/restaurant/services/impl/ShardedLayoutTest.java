@@ -0,0 +1,68 @@
+package com.bh.restaurant.services.impl;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShardedLayoutTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void locatesFilesInBothLayouts() throws IOException {
+        Path sharded = ShardedLayout.resolve(directory, "a.jpg");
+        Files.createDirectories(sharded.getParent());
+        Files.writeString(sharded, "sharded");
+        Files.writeString(directory.resolve("b.jpg"), "flat");
+
+        assertEquals(Optional.of(sharded), ShardedLayout.locate(directory, "a.jpg"));
+        assertEquals(Optional.of(directory.resolve("b.jpg")), ShardedLayout.locate(directory, "b.jpg"));
+        assertEquals(Optional.empty(), ShardedLayout.locate(directory, "c.jpg"));
+    }
+
+    @Test
+    void neverLocatesDirectories() throws IOException {
+        Files.createDirectories(directory.resolve("blobs"));
+        Path shard = ShardedLayout.resolve(directory, "a.jpg").getParent();
+        Files.createDirectories(shard);
+
+        assertEquals(Optional.empty(), ShardedLayout.locate(directory, "blobs"));
+        assertEquals(Optional.empty(), ShardedLayout.locate(directory, shard.getParent().getFileName().toString()));
+        // A directory at the sharded location of a name
+        Files.createDirectories(ShardedLayout.resolve(directory, "d.jpg"));
+        assertEquals(Optional.empty(), ShardedLayout.locate(directory, "d.jpg"));
+    }
+
+    @Test
+    void rejectsNamesOutsideTheDirectory() {
+        for (String name : new String[]{"", ".", "..", "../a.jpg", "a/b.jpg", "a\\b.jpg"}) {
+            assertFalse(ShardedLayout.isValidName(name), name);
+            assertEquals(Optional.empty(), ShardedLayout.locate(directory, name), name);
+        }
+    }
+
+    @Test
+    void migrationLeavesExistingShardedFilesAlone() throws IOException {
+        Files.writeString(directory.resolve("a.jpg"), "flat-a");
+        Files.writeString(directory.resolve("b.jpg"), "flat-b");
+        Path existing = ShardedLayout.resolve(directory, "b.jpg");
+        Files.createDirectories(existing.getParent());
+        Files.writeString(existing, "sharded-b");
+
+        assertEquals(1, ShardedLayout.migrate(directory, file -> false));
+
+        assertEquals("flat-a", Files.readString(ShardedLayout.resolve(directory, "a.jpg")));
+        assertFalse(Files.exists(directory.resolve("a.jpg")));
+        assertEquals("sharded-b", Files.readString(existing));
+        assertTrue(Files.exists(directory.resolve("b.jpg")));
+    }
+}
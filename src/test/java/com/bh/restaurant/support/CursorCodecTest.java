@@ -0,0 +1,57 @@
+package com.bh.restaurant.support;
+
+import com.bh.restaurant.exceptions.InvalidCursorException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CursorCodecTest {
+
+    private static final Sort BY_RATING = Sort.by(Sort.Order.desc("rating"), Sort.Order.desc("datePosted"), Sort.Order.asc("id"));
+
+    private final CursorCodec codec = new CursorCodec(new ObjectMapper());
+
+    @Test
+    void roundTripsSortValues() {
+        List<Object> sortValues = List.of(5, 1_718_000_000_000L, "review-id");
+
+        String cursor = codec.encode(BY_RATING, sortValues);
+
+        assertTrue(cursor.matches("[A-Za-z0-9_-]+"), "URL-safe without padding: " + cursor);
+        List<Object> decoded = codec.decode(cursor, BY_RATING);
+        assertEquals(5, ((Number) decoded.get(0)).intValue());
+        assertEquals(1_718_000_000_000L, ((Number) decoded.get(1)).longValue());
+        assertEquals("review-id", decoded.get(2));
+    }
+
+    @Test
+    void rejectsCursorOfAnotherSort() {
+        String cursor = codec.encode(BY_RATING, List.of(5, 1_718_000_000_000L, "review-id"));
+
+        Sort byDate = Sort.by(Sort.Order.desc("datePosted"), Sort.Order.asc("id"));
+        assertThrows(InvalidCursorException.class, () -> codec.decode(cursor, byDate));
+
+        Sort ascending = Sort.by(Sort.Order.asc("rating"), Sort.Order.desc("datePosted"), Sort.Order.asc("id"));
+        assertThrows(InvalidCursorException.class, () -> codec.decode(cursor, ascending));
+    }
+
+    @Test
+    void rejectsMalformedCursors() {
+        assertThrows(InvalidCursorException.class, () -> codec.decode("not base64!", BY_RATING));
+        assertThrows(InvalidCursorException.class, () -> codec.decode(encode("[5,\"review-id\"]"), BY_RATING));
+        assertThrows(InvalidCursorException.class, () -> codec.decode(
+                encode("{\"sort\":[\"rating:DESC\",\"datePosted:DESC\",\"id:ASC\"],\"after\":[5]}"), BY_RATING));
+    }
+
+    private static String encode(String json) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
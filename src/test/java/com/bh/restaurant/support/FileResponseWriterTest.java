@@ -0,0 +1,129 @@
+package com.bh.restaurant.support;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class FileResponseWriterTest {
+
+    private static final String CONTENT = "0123456789";
+
+    @TempDir
+    Path directory;
+
+    private FileSystemResource resource;
+    private final FileResponseWriter writer = new FileResponseWriter(new SimpleMeterRegistry());
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Path file = directory.resolve("photo.jpg");
+        Files.writeString(file, CONTENT, StandardCharsets.US_ASCII);
+        resource = new FileSystemResource(file);
+    }
+
+    @Test
+    void servesWholeFileWithoutRange() throws IOException {
+        MockHttpServletResponse response = write(request(null));
+
+        assertEquals(200, response.getStatus());
+        assertEquals("image/jpeg", response.getContentType());
+        assertEquals(CONTENT, response.getContentAsString());
+        assertNull(response.getHeader(HttpHeaders.CONTENT_RANGE));
+    }
+
+    @Test
+    void servesSingleRanges() throws IOException {
+        MockHttpServletResponse closed = write(request("bytes=2-4"));
+        assertEquals(206, closed.getStatus());
+        assertEquals("bytes 2-4/10", closed.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals("234", closed.getContentAsString());
+
+        MockHttpServletResponse open = write(request("bytes=7-"));
+        assertEquals("bytes 7-9/10", open.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals("789", open.getContentAsString());
+
+        MockHttpServletResponse suffix = write(request("bytes=-2"));
+        assertEquals("bytes 8-9/10", suffix.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals("89", suffix.getContentAsString());
+
+        // An end past the file is cut to the last byte
+        MockHttpServletResponse past = write(request("bytes=5-100"));
+        assertEquals("bytes 5-9/10", past.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals("56789", past.getContentAsString());
+    }
+
+    @Test
+    void rejectsUnsatisfiableOrMalformedRanges() throws IOException {
+        for (String range : new String[]{"bytes=10-", "bytes=5-2", "items=0-1", "bytes=abc"}) {
+            MockHttpServletResponse response = write(request(range));
+            assertEquals(416, response.getStatus(), range);
+            assertEquals("bytes */10", response.getHeader(HttpHeaders.CONTENT_RANGE), range);
+            assertEquals("", response.getContentAsString(), range);
+        }
+    }
+
+    @Test
+    void servesWholeFileForMultipleRanges() throws IOException {
+        MockHttpServletResponse response = write(request("bytes=0-1,4-5"));
+
+        assertEquals(200, response.getStatus());
+        assertEquals(CONTENT, response.getContentAsString());
+    }
+
+    @Test
+    void ignoresRangeWhenIfRangeNoLongerMatches() throws IOException {
+        MockHttpServletRequest request = request("bytes=0-1");
+        request.addHeader(HttpHeaders.IF_RANGE, "\"stale\"");
+        MockHttpServletResponse response = write(request);
+        assertEquals(200, response.getStatus());
+        assertEquals(CONTENT, response.getContentAsString());
+
+        String eTag = response.getHeader(HttpHeaders.ETAG);
+        MockHttpServletRequest current = request("bytes=0-1");
+        current.addHeader(HttpHeaders.IF_RANGE, eTag);
+        MockHttpServletResponse partial = write(current);
+        assertEquals(206, partial.getStatus());
+        assertEquals("01", partial.getContentAsString());
+    }
+
+    @Test
+    void usesSendfileWhenTheConnectorSupportsIt() throws IOException {
+        MockHttpServletRequest request = request("bytes=2-4");
+        request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+
+        MockHttpServletResponse response = write(request);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("", response.getContentAsString());
+        assertEquals(2L, request.getAttribute("org.apache.tomcat.sendfile.start"));
+        assertEquals(5L, request.getAttribute("org.apache.tomcat.sendfile.end"));
+    }
+
+    private static MockHttpServletRequest request(String range) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/photos/photo.jpg");
+        if (range != null) {
+            request.addHeader(HttpHeaders.RANGE, range);
+        }
+        return request;
+    }
+
+    private MockHttpServletResponse write(MockHttpServletRequest request) throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        writer.write(resource, CacheControl.noCache(), request, response);
+        return response;
+    }
+}
@@ -0,0 +1,147 @@
+package com.bh.restaurant.support;
+
+import com.bh.restaurant.domain.RestaurantSearchResult;
+import com.bh.restaurant.domain.entities.Restaurant;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.elasticsearch.core.geo.GeoPoint;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GeoGridTest {
+
+    @Test
+    void nearestMatchesBruteForce() {
+        Random random = new Random(42);
+        GeoGrid grid = new GeoGrid(0.5);
+        List<Restaurant> restaurants = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            // Dense around London, sparse elsewhere, some close to the poles and the antimeridian
+            double latitude = i % 4 == 0 ? random.nextDouble() * 180 - 90 : 51 + random.nextDouble();
+            double longitude = i % 4 == 0 ? random.nextDouble() * 360 - 180 : random.nextDouble() - 0.5;
+            Restaurant restaurant = restaurant("r" + i, latitude, longitude, random.nextInt(6));
+            restaurants.add(restaurant);
+            grid.put(restaurant);
+        }
+
+        double[][] origins = {{51.5, 0}, {0, 0}, {89.9, 10}, {-89.9, -170}, {10, 179.9}, {-10, -179.9}};
+        for (double[] origin : origins) {
+            for (float minRating : new float[]{Float.NEGATIVE_INFINITY, 4f}) {
+                List<RestaurantSearchResult> expected = bruteForce(restaurants, origin[0], origin[1], minRating);
+                List<RestaurantSearchResult> actual = grid.nearest(origin[0], origin[1], 25, minRating);
+                assertSameDistances(expected.subList(0, 25), actual);
+            }
+        }
+    }
+
+    @Test
+    void expandsRingsUntilTheOnlyRestaurantIsFound() {
+        GeoGrid grid = new GeoGrid(0.05);
+        grid.put(restaurant("far", -45, 120, 3));
+
+        List<RestaurantSearchResult> results = grid.nearest(51.5, -0.1, 10, Float.NEGATIVE_INFINITY);
+
+        assertEquals(1, results.size());
+        assertEquals("far", results.getFirst().getRestaurant().getId());
+    }
+
+    @Test
+    void findsNeighboursAcrossTheAntimeridian() {
+        GeoGrid grid = new GeoGrid(0.05);
+        grid.put(restaurant("east", 0, 179.99, 3));
+        grid.put(restaurant("west", 0, -179.99, 3));
+        grid.put(restaurant("inland", 0, 179.5, 3));
+
+        List<RestaurantSearchResult> nearest = grid.nearest(0, -179.999, 2, Float.NEGATIVE_INFINITY);
+        assertEquals(List.of("west", "east"), ids(nearest));
+
+        List<RestaurantSearchResult> within = grid.withinRadius(0, 179.999, 5, Float.NEGATIVE_INFINITY);
+        assertEquals(List.of("east", "west"), ids(within));
+    }
+
+    @Test
+    void findsRestaurantsAcrossThePole() {
+        GeoGrid grid = new GeoGrid(0.05);
+        // About 22km apart over the north pole, on opposite meridians
+        grid.put(restaurant("opposite", 89.9, 180, 3));
+        grid.put(restaurant("south", 89.0, 0, 3));
+
+        List<RestaurantSearchResult> within = grid.withinRadius(89.9, 0, 25, Float.NEGATIVE_INFINITY);
+        assertEquals(List.of("opposite"), ids(within));
+
+        assertEquals(List.of("opposite"), ids(grid.nearest(89.9, 0, 1, Float.NEGATIVE_INFINITY)));
+    }
+
+    @Test
+    void withinRadiusFiltersByDistanceAndRating() {
+        GeoGrid grid = new GeoGrid(0.05);
+        grid.put(restaurant("near", 51.501, -0.1, 5));
+        grid.put(restaurant("low", 51.502, -0.1, 1));
+        grid.put(restaurant("far", 51.6, -0.1, 5));
+
+        List<RestaurantSearchResult> results = grid.withinRadius(51.5, -0.1, 2, 3f);
+
+        assertEquals(List.of("near"), ids(results));
+        assertEquals(GeoGrid.distanceKm(51.5, -0.1, 51.501, -0.1), results.getFirst().getDistanceKm(), 1e-9);
+        assertEquals(2, grid.count(3f));
+    }
+
+    @Test
+    void reusesSlotsOfRemovedRestaurants() {
+        GeoGrid grid = new GeoGrid(0.05);
+        for (int i = 0; i < 1500; i++) {
+            grid.put(restaurant("r" + i, 51.5, -0.1 + i * 1e-4, 3));
+        }
+        for (int i = 0; i < 1500; i += 2) {
+            grid.remove("r" + i);
+        }
+        // Moved restaurants leave their old cell
+        grid.put(restaurant("r1", 40.7, -74.0, 3));
+        for (int i = 0; i < 750; i++) {
+            grid.put(restaurant("n" + i, 48.85, 2.35 + i * 1e-4, 3));
+        }
+
+        assertEquals(1500, grid.count());
+        assertNull(grid.get("r0"));
+        assertEquals(40.7, grid.get("r1").getGeoLocation().getLat());
+        assertTrue(ids(grid.withinRadius(51.5, -0.1, 0.01, Float.NEGATIVE_INFINITY)).isEmpty());
+        assertEquals(List.of("r1"), ids(grid.nearest(40.7, -74.0, 1, Float.NEGATIVE_INFINITY)));
+        assertEquals(750, grid.withinRadius(48.85, 2.4, 10, Float.NEGATIVE_INFINITY).size());
+    }
+
+    private static List<RestaurantSearchResult> bruteForce(List<Restaurant> restaurants, double latitude,
+                                                           double longitude, float minRating) {
+        return restaurants.stream()
+                .filter(restaurant -> restaurant.getAverageRating() >= minRating)
+                .map(restaurant -> new RestaurantSearchResult(restaurant, GeoGrid.distanceKm(latitude, longitude,
+                        restaurant.getGeoLocation().getLat(), restaurant.getGeoLocation().getLon())))
+                .sorted(Comparator.comparingDouble(RestaurantSearchResult::getDistanceKm))
+                .toList();
+    }
+
+    private static void assertSameDistances(List<RestaurantSearchResult> expected, List<RestaurantSearchResult> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getDistanceKm(), actual.get(i).getDistanceKm(), 1e-9);
+        }
+    }
+
+    private static List<String> ids(List<RestaurantSearchResult> results) {
+        return results.stream().map(result -> result.getRestaurant().getId()).toList();
+    }
+
+    private static Restaurant restaurant(String id, double latitude, double longitude, float rating) {
+        return Restaurant.builder()
+                .id(id)
+                .name("Restaurant " + id)
+                .averageRating(rating)
+                .geoLocation(new GeoPoint(latitude, longitude))
+                .build();
+    }
+}
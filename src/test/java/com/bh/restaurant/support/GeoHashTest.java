@@ -0,0 +1,50 @@
+package com.bh.restaurant.support;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class GeoHashTest {
+
+    @Test
+    void encodesKnownHashes() {
+        assertEquals("u4pruydqqvj", GeoHash.encode(57.64911, 10.40744, 11));
+        assertEquals("ezs42", GeoHash.encode(42.605, -5.603, 5));
+        assertEquals("gcpvj0", GeoHash.encode(51.5074, -0.1278, 6));
+    }
+
+    @Test
+    void decodesToTheCenterOfTheCell() {
+        double[] center = GeoHash.decodeCenter("ezs42");
+
+        assertEquals(42.605, center[0], 0.03);
+        assertEquals(-5.603, center[1], 0.03);
+        assertEquals("ezs42", GeoHash.encode(center[0], center[1], 5));
+    }
+
+    @Test
+    void nearbyPointsShareTheCellCenter() {
+        // A precision 7 cell is about 150m x 150m, points 30m from its center are inside it
+        double[] center = GeoHash.decodeCenter("gcpvj0d");
+
+        assertEquals("gcpvj0d", GeoHash.encode(center[0] + 0.0003, center[1] - 0.0003, 7));
+        assertEquals("gcpvj0d", GeoHash.encode(center[0] - 0.0003, center[1] + 0.0003, 7));
+        assertEquals("gcpvj0", GeoHash.encode(center[0], center[1], 6));
+    }
+
+    @Test
+    void handlesTheEdgesOfTheWorld() {
+        assertEquals("zzzzz", GeoHash.encode(90, 180, 5));
+        assertEquals("00000", GeoHash.encode(-90, -180, 5));
+        double[] center = GeoHash.decodeCenter("");
+        assertEquals(0, center[0]);
+        assertEquals(0, center[1]);
+    }
+
+    @Test
+    void rejectsInvalidCharacters() {
+        // a, i, l and o are not part of the geohash alphabet
+        assertThrows(IllegalArgumentException.class, () -> GeoHash.decodeCenter("gcpa"));
+    }
+}
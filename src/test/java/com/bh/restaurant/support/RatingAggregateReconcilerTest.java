@@ -0,0 +1,121 @@
+package com.bh.restaurant.support;
+
+import com.bh.restaurant.domain.entities.Restaurant;
+import com.bh.restaurant.domain.entities.Review;
+import com.bh.restaurant.repositories.inmemory.InMemoryRestaurantRepository;
+import com.bh.restaurant.repositories.inmemory.InMemoryReviewRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RatingAggregateReconcilerTest {
+
+    private InMemoryRestaurantRepository restaurantRepository;
+    private InMemoryReviewRepository reviewRepository;
+    private RatingAggregateReconciler reconciler;
+
+    @BeforeEach
+    void setUp() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        restaurantRepository = new InMemoryRestaurantRepository(0.05);
+        reviewRepository = new InMemoryReviewRepository();
+        reconciler = new RatingAggregateReconciler(
+                restaurantRepository,
+                reviewRepository,
+                new RestaurantGeoIndex(restaurantRepository, 0.05, meterRegistry),
+                new SearchResultCache(100, Duration.ofSeconds(30), 7, meterRegistry),
+                new ConcurrentMapCacheManager(),
+                meterRegistry,
+                true);
+    }
+
+    @Test
+    void correctsDriftSeenByTwoRunsInARow() {
+        // The rating change of the second review never reached the restaurant
+        restaurantRepository.save(restaurant("r1", 4, 1, Map.of("4", 1)));
+        reviewRepository.save(review("a", "r1", 4));
+        reviewRepository.save(review("b", "r1", 2));
+
+        reconciler.reconcile();
+        assertEquals(4L, restaurantRepository.findById("r1").orElseThrow().getRatingSum());
+
+        reconciler.reconcile();
+        Restaurant reconciled = restaurantRepository.findById("r1").orElseThrow();
+        assertEquals(6L, reconciled.getRatingSum());
+        assertEquals(2, reconciled.getReviewCount());
+        assertEquals(3f, reconciled.getAverageRating());
+        assertEquals(Map.of("1", 0, "2", 1, "3", 0, "4", 1, "5", 0), reconciled.getRatingHistogram());
+    }
+
+    @Test
+    void leavesRestaurantWrittenBetweenRunsAlone() {
+        restaurantRepository.save(restaurant("r1", 0, 0, Map.of()));
+        reviewRepository.save(review("a", "r1", 5));
+
+        reconciler.reconcile();
+        // The pending rating change lands, as for a review write that was in flight
+        restaurantRepository.applyRatingChange("r1", 5, null);
+        reconciler.reconcile();
+
+        Restaurant restaurant = restaurantRepository.findById("r1").orElseThrow();
+        assertEquals(5L, restaurant.getRatingSum());
+        assertEquals(1, restaurant.getReviewCount());
+    }
+
+    @Test
+    void resetsRestaurantWithoutReviews() {
+        restaurantRepository.save(restaurant("r1", 3, 1, Map.of("3", 1)));
+
+        reconciler.reconcile();
+        reconciler.reconcile();
+
+        Restaurant restaurant = restaurantRepository.findById("r1").orElseThrow();
+        assertEquals(0L, restaurant.getRatingSum());
+        assertEquals(0, restaurant.getReviewCount());
+        assertEquals(0f, restaurant.getAverageRating());
+        assertEquals(Map.of("1", 0, "2", 0, "3", 0, "4", 0, "5", 0), restaurant.getRatingHistogram());
+    }
+
+    @Test
+    void zeroesStarsWithoutReviewsLeft() {
+        // The 5-star review was deleted, its rating change never reached the restaurant
+        restaurantRepository.save(restaurant("r1", 8, 2, Map.of("3", 1, "5", 1)));
+        reviewRepository.save(review("a", "r1", 3));
+
+        reconciler.reconcile();
+        reconciler.reconcile();
+
+        Restaurant reconciled = restaurantRepository.findById("r1").orElseThrow();
+        assertEquals(3L, reconciled.getRatingSum());
+        assertEquals(1, reconciled.getReviewCount());
+        assertEquals(Map.of("1", 0, "2", 0, "3", 1, "4", 0, "5", 0), reconciled.getRatingHistogram());
+    }
+
+    private static Restaurant restaurant(String id, long ratingSum, int reviewCount, Map<String, Integer> histogram) {
+        return Restaurant.builder()
+                .id(id)
+                .name("Restaurant " + id)
+                .cuisineType("Italian")
+                .ratingSum(ratingSum)
+                .reviewCount(reviewCount)
+                .averageRating(reviewCount == 0 ? 0f : (float) ratingSum / reviewCount)
+                .ratingHistogram(new HashMap<>(histogram))
+                .build();
+    }
+
+    private static Review review(String id, String restaurantId, int rating) {
+        return Review.builder()
+                .id(id)
+                .restaurantId(restaurantId)
+                .content("Review " + id)
+                .rating(rating)
+                .build();
+    }
+}
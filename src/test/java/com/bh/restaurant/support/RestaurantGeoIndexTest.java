@@ -0,0 +1,120 @@
+package com.bh.restaurant.support;
+
+import com.bh.restaurant.domain.RestaurantSearchResult;
+import com.bh.restaurant.domain.entities.Restaurant;
+import com.bh.restaurant.repositories.inmemory.InMemoryRestaurantRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.elasticsearch.core.geo.GeoPoint;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RestaurantGeoIndexTest {
+
+    private Runnable duringScan = () -> {
+    };
+
+    // Runs duringScan halfway through the scan of a reload, as a write of this instance would
+    private final InMemoryRestaurantRepository repository = new InMemoryRestaurantRepository(0.05) {
+        @Override
+        public void forEachSummary(Consumer<Restaurant> consumer) {
+            boolean[] first = {true};
+            super.forEachSummary(summary -> {
+                consumer.accept(summary);
+                if (first[0]) {
+                    first[0] = false;
+                    duringScan.run();
+                }
+            });
+        }
+    };
+
+    private final RestaurantGeoIndex index = new RestaurantGeoIndex(repository, 0.05, new SimpleMeterRegistry());
+
+    @Test
+    void replaysWritesMadeDuringAReload() {
+        repository.save(restaurant("kept", 51.5, -0.1, 3f));
+        repository.save(restaurant("deleted", 51.51, -0.1, 3f));
+        repository.save(restaurant("moved", 51.52, -0.1, 3f));
+        index.reload();
+
+        duringScan = () -> {
+            // The scan may have read these before or after the writes; the replay wins either way
+            repository.deleteById("deleted");
+            index.remove("deleted");
+            Restaurant moved = restaurant("moved", 48.85, 2.35, 3f);
+            repository.save(moved);
+            index.put(moved);
+            Restaurant created = restaurant("created", 51.53, -0.1, 3f);
+            repository.save(created);
+            index.put(created);
+            index.applyRatingChange("kept", 5, null);
+        };
+        index.reload();
+
+        assertTrue(index.isReady());
+        assertEquals(3, index.size());
+        List<RestaurantSearchResult> london = index.nearest(51.5, -0.1, 10, null);
+        assertEquals(List.of("kept", "created", "moved"), ids(london));
+        assertEquals(48.85, london.get(2).getRestaurant().getGeoLocation().getLat());
+        // The rating change (3 and 5 average to 4) is not overwritten by the scanned document
+        assertEquals(List.of("kept"), ids(index.nearest(51.5, -0.1, 10, 3.5f)));
+    }
+
+    @Test
+    void stopsRecordingChangesAfterAReload() {
+        repository.save(restaurant("a", 51.5, -0.1, 3f));
+        index.reload();
+
+        index.remove("a");
+        duringScan = () -> {
+        };
+        index.reload();
+
+        // The earlier removal is not replayed on top of the second reload
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void keepsTheCurrentIndexWhenAReloadFails() {
+        repository.save(restaurant("a", 51.5, -0.1, 3f));
+        index.reload();
+
+        duringScan = () -> {
+            throw new IllegalStateException("scroll expired");
+        };
+        index.reload();
+        index.put(restaurant("b", 51.51, -0.1, 3f));
+
+        assertTrue(index.isReady());
+        assertEquals(List.of("a", "b"), ids(index.nearest(51.5, -0.1, 10, null)));
+    }
+
+    @Test
+    void isNotReadyBeforeTheFirstReload() {
+        index.put(restaurant("a", 51.5, -0.1, 3f));
+
+        assertFalse(index.isReady());
+        assertEquals(1, index.size());
+    }
+
+    private static List<String> ids(List<RestaurantSearchResult> results) {
+        return results.stream().map(result -> result.getRestaurant().getId()).toList();
+    }
+
+    private static Restaurant restaurant(String id, double latitude, double longitude, float rating) {
+        return Restaurant.builder()
+                .id(id)
+                .name("Restaurant " + id)
+                .averageRating(rating)
+                .ratingSum((long) rating)
+                .reviewCount(1)
+                .geoLocation(new GeoPoint(latitude, longitude))
+                .build();
+    }
+}